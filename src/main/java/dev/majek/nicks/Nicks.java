@@ -24,31 +24,52 @@
 
 package dev.majek.nicks;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import dev.majek.nicks.api.NicksApi;
 import dev.majek.nicks.command.CommandNick;
 import dev.majek.nicks.command.CommandNickColor;
 import dev.majek.nicks.command.CommandNickOther;
 import dev.majek.nicks.command.CommandNicksReload;
 import dev.majek.nicks.command.CommandNoNick;
+import dev.majek.nicks.command.CommandRealName;
 import dev.majek.nicks.config.ConfigUpdater;
-import dev.majek.nicks.config.JsonConfig;
 import dev.majek.nicks.config.NicksConfig;
 import dev.majek.nicks.event.ChatFormatter;
 import dev.majek.nicks.event.PlayerJoin;
+import dev.majek.nicks.event.PlayerPreLogin;
+import dev.majek.nicks.event.PlayerQuit;
+import dev.majek.nicks.event.TabComplete;
+import dev.majek.nicks.hook.PermissionHook;
+import dev.majek.nicks.hook.PlaceholderHook;
+import dev.majek.nicks.storage.JournalNickStorage;
+import dev.majek.nicks.storage.JsonNickStorage;
+import dev.majek.nicks.storage.NickStorage;
+import dev.majek.nicks.storage.SaveQueue;
+import dev.majek.nicks.storage.SqliteNickStorage;
+import dev.majek.nicks.util.CompletionIndex;
+import dev.majek.nicks.util.MentionIndex;
+import dev.majek.nicks.util.NickStrings;
 import dev.majek.nicks.util.NicksUtils;
+import dev.majek.nicks.util.RateLimiter;
+import dev.majek.nicks.util.UserCache;
+import dev.majek.nicks.validation.ImpersonationIndex;
+import dev.majek.nicks.validation.UniqueNicks;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
-import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
 import org.bukkit.Bukkit;
@@ -58,6 +79,7 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.ApiStatus.Internal;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
 
 /**
  * <p>Main plugin class.</p>
@@ -66,13 +88,33 @@ import org.jetbrains.annotations.Nullable;
  */
 public final class Nicks extends JavaPlugin {
 
+  private static final long           PREFETCH_TIMEOUT = 60_000L;
   private static Nicks                core;
   private static NicksApi             api;
   private static NicksUtils           utils;
   private static NicksConfig          config;
-  private final JsonConfig            storage;
+  private static PlaceholderHook      placeholders;
+  private static PermissionHook       permissions;
+  private final NickStorage           storage;
+  private final SaveQueue             saveQueue;
   private final Map<UUID, Component>  nickMap;
+  private final Map<UUID, Component>  nickMapView;
+  private final Map<String, Set<UUID>> nickIndex;
+  private final Map<UUID, NickStrings> nickStrings;
+  private final Object                nickLock;
+  private final Map<UUID, Component>  offlineCache;
+  private final Map<UUID, Prefetch>   prefetched;
+  private final Set<UUID>             offlineFetches;
+  private final Set<UUID>             loaded;
+  private final AtomicBoolean         knownNamesIndexed;
+  private final MentionIndex          mentionIndex;
+  private final CompletionIndex       completionIndex;
+  private final ImpersonationIndex    impersonationIndex;
+  private final UniqueNicks           uniqueNicks;
+  private final RateLimiter           rateLimiter;
+  private final Map<UUID, Boolean>    listNameWindows;
   private final Metrics               metrics;
+  private boolean                     lazyLoading;
 
   /**
    * Initialize plugin.
@@ -82,14 +124,42 @@ public final class Nicks extends JavaPlugin {
     api = new NicksApi();
     utils = new NicksUtils();
     config = new NicksConfig();
-    storage = new JsonConfig(getDataFolder(), "nicknames.json");
-    try {
-      storage.createConfig();
-    } catch (FileNotFoundException e) {
-      error("Error creating nicknames.json file:");
-      e.printStackTrace();
-    }
-    nickMap = new HashMap<>();
+    placeholders = new PlaceholderHook();
+    permissions = new PermissionHook();
+    storage = createStorage();
+    saveQueue = new SaveQueue(storage);
+    // Read without locking from async chat and storage threads
+    nickMap = new ConcurrentHashMap<>();
+    nickMapView = Collections.unmodifiableMap(nickMap);
+    // Case-folded plain text nicknames keyed to the players who have them
+    nickIndex = new ConcurrentHashMap<>();
+    // Serialized forms of loaded nicknames for placeholders
+    nickStrings = new ConcurrentHashMap<>();
+    nickLock = new Object();
+    // Least recently used offline lookups, a null value means the player has no nickname
+    offlineCache = new LinkedHashMap<>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, Component> eldest) {
+        if (size() <= config().OFFLINE_CACHE_SIZE) {
+          return false;
+        }
+        if (!nickMap.containsKey(eldest.getKey())) {
+          nickStrings.remove(eldest.getKey());
+        }
+        return true;
+      }
+    };
+    prefetched = new ConcurrentHashMap<>();
+    offlineFetches = ConcurrentHashMap.newKeySet();
+    loaded = ConcurrentHashMap.newKeySet();
+    knownNamesIndexed = new AtomicBoolean(false);
+    mentionIndex = new MentionIndex();
+    completionIndex = new CompletionIndex();
+    impersonationIndex = new ImpersonationIndex();
+    uniqueNicks = new UniqueNicks();
+    rateLimiter = new RateLimiter(3, 10);
+    // Players whose tab list name was just updated, true if it changed again since
+    listNameWindows = new ConcurrentHashMap<>();
     // Track plugin metrics through bStats
     metrics = new Metrics(this, 11860);
   }
@@ -102,18 +172,42 @@ public final class Nicks extends JavaPlugin {
     // Initialize configuration file
     reload();
 
-    // Load nicknames from storage
+    // Load nicknames from storage, in lazy mode only online players are loaded
+    lazyLoading = config().LAZY_LOADING;
     try {
-      JsonObject jsonObject = storage.toJsonObject();
-      for (String key : jsonObject.keySet()) {
-        nickMap.put(UUID.fromString(key), GsonComponentSerializer.gson()
-            .deserializeFromTree(jsonObject.get(key)));
+      storage.load();
+      if (lazyLoading) {
+        Bukkit.getOnlinePlayers().forEach(player -> loadNick(player.getUniqueId()));
+        // Unloaded players' nicknames still have to stay taken
+        if (config().UNIQUE_NICKNAMES) {
+          uniqueNicks.indexStored(storage.loadAll());
+        }
+      } else {
+        // Older versions nested nicknames one level deeper on every join, compact them once
+        Map<UUID, Component> compacted = new HashMap<>();
+        storage.loadAll().forEach((uuid, nick) -> {
+          Component normalized = utils().normalize(nick);
+          if (!normalized.equals(nick)) {
+            compacted.put(uuid, normalized);
+          }
+          putLoaded(uuid, normalized);
+        });
+        if (!compacted.isEmpty()) {
+          storage.write(compacted, Collections.emptyList());
+          log("Compacted " + compacted.size() + " stored nicknames.");
+        }
       }
+      log("Successfully loaded nicknames from " + config().STORAGE_BACKEND + " storage.");
     } catch (IOException e) {
-      error("Error loading nickname data from nicknames.json file:");
+      error("Error loading nickname data from storage:");
       e.printStackTrace();
     }
-    log("Successfully loaded nicknames from Json storage.");
+
+    // Players already online after a reload can be mentioned and completed too
+    Bukkit.getOnlinePlayers().forEach(mentionIndex::add);
+    Bukkit.getOnlinePlayers().forEach(completionIndex::add);
+    // Real names nicknames may not imitate or copy
+    indexKnownNames();
 
     // Register plugin commands
     registerCommands();
@@ -126,7 +220,43 @@ public final class Nicks extends JavaPlugin {
         () -> String.valueOf(Nicks.config().CHAT_FORMATTER)));
 
     // Register events
-    registerEvents(new PlayerJoin(), new ChatFormatter());
+    registerEvents(new PlayerPreLogin(), new PlayerJoin(), new PlayerQuit(), new ChatFormatter(),
+        new TabComplete());
+
+    // Provide nickname placeholders to other plugins
+    placeholders().registerExpansion();
+    // Forget cached chat formats when permissions change
+    permissions().register();
+  }
+
+  /**
+   * Plugin shutdown logic.
+   */
+  @Override
+  public void onDisable() {
+    // Write any nickname changes that are still queued
+    saveQueue.shutdown();
+    try {
+      storage.close();
+    } catch (IOException e) {
+      error("Error closing nickname storage:");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Create the nickname storage selected in the config.
+   * Changing the storage backend requires a restart.
+   *
+   * @return Nickname storage.
+   */
+  private NickStorage createStorage() {
+    return switch (config().STORAGE_BACKEND.toLowerCase()) {
+      case "journal" -> new JournalNickStorage(getDataFolder(), "nicknames.json",
+          "nicknames.journal");
+      case "sqlite" -> new SqliteNickStorage(getDataFolder(), "nicknames.db", "nicknames.json");
+      default -> new JsonNickStorage(getDataFolder(), "nicknames.json");
+    };
   }
 
   /**
@@ -142,6 +272,8 @@ public final class Nicks extends JavaPlugin {
     getCommand("nickother").setTabCompleter(new CommandNickOther());
     getCommand("nickcolor").setExecutor(new CommandNickColor());
     getCommand("nickcolor").setTabCompleter(new CommandNickColor());
+    getCommand("realname").setExecutor(new CommandRealName());
+    getCommand("realname").setTabCompleter(new CommandRealName());
     getCommand("nicksreload").setExecutor(new CommandNicksReload());
     getCommand("nicksreload").setTabCompleter(new CommandNicksReload());
   }
@@ -191,6 +323,24 @@ public final class Nicks extends JavaPlugin {
     return config;
   }
 
+  /**
+   * Resolve PlaceholderAPI placeholders, if PlaceholderAPI is installed.
+   *
+   * @return PlaceholderHook.
+   */
+  public static PlaceholderHook placeholders() {
+    return placeholders;
+  }
+
+  /**
+   * Track permission changes, if LuckPerms is installed.
+   *
+   * @return PermissionHook.
+   */
+  public static PermissionHook permissions() {
+    return permissions;
+  }
+
   /**
    * Log an object to console. This should be a non-critical message.
    *
@@ -228,102 +378,515 @@ public final class Nicks extends JavaPlugin {
     saveDefaultConfig();
     File configFile = new File(core().getDataFolder(), "config.yml");
     try {
-      ConfigUpdater.update(core(), "config.yml", configFile, Collections.emptyList());
+      // Named chat formats are user defined, keep them as they are
+      ConfigUpdater.update(core(), "config.yml", configFile,
+          Collections.singletonList("chat-formats"));
     } catch (IOException e) {
       e.printStackTrace();
     }
     reloadConfig();
     config().reload();
+    rateLimiter.configure(config().RATE_LIMIT_BURST, config().RATE_LIMIT_REFILL);
+    if (isEnabled()) {
+      // The checks needing real names may have just been turned on
+      indexKnownNames();
+    }
+    placeholders().reload();
+    saveQueue.start();
+  }
+
+  /**
+   * Index the usernames of players who recently joined, from the server's user cache, if the
+   * look-alike check or blocking real names needs them. Runs once, off the main thread. Names
+   * of players joining from then on are added as they log in.
+   */
+  private void indexKnownNames() {
+    boolean needed = !"off".equalsIgnoreCase(getConfig().getString("impersonation-check", "warn"))
+        || (config().UNIQUE_NICKNAMES && config().BLOCK_REAL_NAMES);
+    if (!needed || !knownNamesIndexed.compareAndSet(false, true)) {
+      return;
+    }
+    Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+      try {
+        Map<UUID, String> names = UserCache.read(new File(Bukkit.getWorldContainer(),
+            "usercache.json"));
+        names.forEach(this::addKnownName);
+        debug("Indexed " + names.size() + " usernames from the user cache.");
+      } catch (IOException e) {
+        error("Error reading usernames from usercache.json:");
+        e.printStackTrace();
+      }
+    });
+  }
+
+  /**
+   * Remember a player's real name so nicknames can't imitate or copy it.
+   *
+   * @param uuid The player's unique id.
+   * @param name The player's username.
+   */
+  @Internal
+  public void addKnownName(@NotNull UUID uuid, @NotNull String name) {
+    impersonationIndex.addName(uuid, name);
+    uniqueNicks.addName(uuid, name);
+  }
+
+  /**
+   * Get a read-only view of the loaded nicknames keyed by unique id. The view is backed by
+   * the live map, safe to read from any thread and never throws
+   * {@link java.util.ConcurrentModificationException} while iterating. Nicknames are changed
+   * through {@link #setNick(Player, Component)} and {@link #removeNick(UUID)}.
+   *
+   * @return Unmodifiable view of the nickname map.
+   */
+  @UnmodifiableView
+  public Map<UUID, Component> getNickMapView() {
+    return nickMapView;
+  }
+
+  /**
+   * Get the unique id of a loaded player whose nickname is the given plain text, ignoring case.
+   * This is a single lookup in an index kept up to date as nicknames change. If several
+   * players share the nickname, any one of them is returned.
+   *
+   * @param nickname The plain text nickname.
+   * @return The unique id if found.
+   */
+  @Nullable
+  public UUID getUniqueIdFromNick(@NotNull String nickname) {
+    Set<UUID> owners = nickIndex.get(nickname.toLowerCase(Locale.ROOT));
+    if (owners == null) {
+      return null;
+    }
+    Iterator<UUID> iterator = owners.iterator();
+    return iterator.hasNext() ? iterator.next() : null;
   }
 
   /**
-   * Get the map that stores unique ids keyed to nicknames.
+   * Get the unique ids of every loaded player whose nickname is the given plain text.
    *
-   * @return NickMap.
+   * @param folded The plain text nickname in lower case.
+   * @return Read-only set of unique ids, empty if nobody has the nickname.
    */
-  public Map<UUID, Component> getNickMap() {
-    return nickMap;
+  @Internal
+  @NotNull
+  public Set<UUID> getNickOwners(@NotNull String folded) {
+    Set<UUID> owners = nickIndex.get(folded);
+    return owners == null ? Collections.emptySet() : Collections.unmodifiableSet(owners);
   }
 
   /**
    * Check whether or not there is a nickname stored for a unique id.
+   * With lazy loading this may read from storage for players who aren't online, see
+   * {@link #getNick(UUID)}.
    *
    * @param uuid The unique id.
    * @return True if there is a nickname stored.
    */
   public boolean hasNick(@NotNull UUID uuid) {
-    return nickMap.containsKey(uuid);
+    return getNick(uuid) != null;
   }
 
   /**
-   * Get a nickname from a unique id.
+   * Get a nickname from a unique id. With lazy loading, nicknames of players who
+   * aren't loaded are looked up in a bounded cache and read from storage on a miss,
+   * which blocks the calling thread. Online players are always loaded, with or without a
+   * nickname, so looking them up never reads storage.
    *
    * @param uuid Unique id.
    * @return Nickname if it exists.
    */
   @Nullable
   public Component getNick(@NotNull UUID uuid) {
-    return nickMap.get(uuid);
+    Component nick = nickMap.get(uuid);
+    if (nick != null || !lazyLoading || loaded.contains(uuid)) {
+      return nick;
+    }
+    return getOfflineNick(uuid);
+  }
+
+  /**
+   * Get the serialized forms of a nickname. They're computed once when the nickname is set or
+   * loaded, so reads never serialize and are safe from any thread. With lazy loading,
+   * nicknames of players who aren't loaded are taken from the offline cache. This never reads
+   * storage: on a cache miss the nickname is read asynchronously and null is returned until
+   * it's cached.
+   *
+   * @param uuid Unique id.
+   * @return The nickname's string forms if it exists and is available.
+   */
+  @Nullable
+  public NickStrings getNickStrings(@NotNull UUID uuid) {
+    NickStrings strings = nickStrings.get(uuid);
+    if (strings != null || !lazyLoading || loaded.contains(uuid)) {
+      return strings;
+    }
+    Component nick;
+    synchronized (offlineCache) {
+      if (!offlineCache.containsKey(uuid)) {
+        fetchOfflineNick(uuid);
+        return null;
+      }
+      nick = offlineCache.get(uuid);
+    }
+    return nick == null ? null : nickStrings.computeIfAbsent(uuid, key -> NickStrings.of(nick));
+  }
+
+  /**
+   * Get the index of online players' names used to find mentions in chat.
+   *
+   * @return MentionIndex.
+   */
+  @Internal
+  public MentionIndex getMentionIndex() {
+    return mentionIndex;
+  }
+
+  /**
+   * Get the index of online players' names used for tab completion.
+   *
+   * @return CompletionIndex.
+   */
+  @Internal
+  public CompletionIndex getCompletionIndex() {
+    return completionIndex;
+  }
+
+  /**
+   * Get the rate limiter for players changing their own nickname.
+   *
+   * @return RateLimiter.
+   */
+  @Internal
+  public RateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  /**
+   * Get the index of names and nicknames used to catch look-alike nicknames.
+   *
+   * @return ImpersonationIndex.
+   */
+  @Internal
+  public ImpersonationIndex getImpersonationIndex() {
+    return impersonationIndex;
+  }
+
+  /**
+   * Get the index that keeps nicknames unique when that's enabled.
+   *
+   * @return UniqueNicks.
+   */
+  @Internal
+  public UniqueNicks getUniqueNicks() {
+    return uniqueNicks;
+  }
+
+  /**
+   * Whether nicknames are loaded when players join instead of all at startup.
+   *
+   * @return True if lazy loading is enabled.
+   */
+  public boolean isLazyLoading() {
+    return lazyLoading;
+  }
+
+  /**
+   * Load a player's nickname into the map so lookups don't hit storage while they're online.
+   * Players without a nickname are recorded as loaded too. Only used with lazy loading.
+   *
+   * @param uuid The unique id to load.
+   */
+  @Internal
+  public void loadNick(@NotNull UUID uuid) {
+    Prefetch prefetch = prefetched.remove(uuid);
+    Component nick = prefetch != null ? prefetch.nick() : getOfflineNick(uuid);
+    synchronized (offlineCache) {
+      offlineCache.remove(uuid);
+    }
+    if (nick != null) {
+      putLoaded(uuid, nick);
+    }
+    loaded.add(uuid);
+  }
+
+  /**
+   * Read a player's nickname ahead of their join so {@link #loadNick(UUID)} doesn't have
+   * to touch storage on the main thread. Called from the async pre-login thread.
+   * Only used with lazy loading.
+   *
+   * @param uuid The unique id of the player logging in.
+   */
+  @Internal
+  public void prefetchNick(@NotNull UUID uuid) {
+    long now = System.currentTimeMillis();
+    // Drop prefetches for logins that never made it to joining
+    prefetched.values().removeIf(prefetch -> now - prefetch.time() > PREFETCH_TIMEOUT);
+    prefetched.put(uuid, new Prefetch(getOfflineNick(uuid), now));
+  }
+
+  /**
+   * Move a player's nickname from the map into the offline cache once they have left.
+   * Only used with lazy loading.
+   *
+   * @param uuid The unique id to unload.
+   */
+  @Internal
+  public void unloadNick(@NotNull UUID uuid) {
+    // Cached before unloading so lookups in between never fall through to storage
+    synchronized (offlineCache) {
+      offlineCache.put(uuid, nickMap.get(uuid));
+    }
+    loaded.remove(uuid);
+    Component nick = removeLoaded(uuid);
+    synchronized (offlineCache) {
+      offlineCache.put(uuid, nick);
+    }
+  }
+
+  /**
+   * Put a nickname in the map and the reverse index. Writers are serialized so the two
+   * always agree, readers of either never lock.
+   *
+   * @return The nickname that was replaced, if any.
+   */
+  @Nullable
+  private Component putLoaded(@NotNull UUID uuid, @NotNull Component nick) {
+    synchronized (nickLock) {
+      Component previous = nickMap.put(uuid, nick);
+      if (previous != null) {
+        unindex(uuid, previous);
+      }
+      if (!nick.equals(previous)) {
+        NickStrings strings = NickStrings.of(nick);
+        nickStrings.put(uuid, strings);
+        impersonationIndex.updateNick(uuid, previous == null ? null
+            : PlainTextComponentSerializer.plainText().serialize(previous), strings.plain());
+        mentionIndex.invalidate(uuid);
+        completionIndex.invalidate(uuid);
+      }
+      nickIndex.computeIfAbsent(indexKey(nick), key -> ConcurrentHashMap.newKeySet()).add(uuid);
+      // The index holds the nickname now, so any claim on it can go
+      uniqueNicks.release(uuid, nick);
+      return previous;
+    }
+  }
+
+  /**
+   * Remove a nickname from the map and the reverse index.
+   *
+   * @return The nickname that was removed, if any.
+   */
+  @Nullable
+  private Component removeLoaded(@NotNull UUID uuid) {
+    synchronized (nickLock) {
+      Component previous = nickMap.remove(uuid);
+      nickStrings.remove(uuid);
+      if (previous != null) {
+        unindex(uuid, previous);
+        impersonationIndex.updateNick(uuid,
+            PlainTextComponentSerializer.plainText().serialize(previous), null);
+        mentionIndex.invalidate(uuid);
+        completionIndex.invalidate(uuid);
+      }
+      return previous;
+    }
+  }
+
+  private void unindex(UUID uuid, Component nick) {
+    nickIndex.computeIfPresent(indexKey(nick), (key, owners) -> {
+      owners.remove(uuid);
+      return owners.isEmpty() ? null : owners;
+    });
+  }
+
+  private String indexKey(Component nick) {
+    return PlainTextComponentSerializer.plainText().serialize(nick).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Normalize a single nickname read from storage, queueing the compact form to be saved
+   * back if normalizing changed anything.
+   */
+  private Component normalizeStored(@NotNull UUID uuid, @NotNull Component nick) {
+    Component normalized = utils().normalize(nick);
+    if (!normalized.equals(nick)) {
+      debug("Compacted stored nickname of user " + uuid + ".");
+      saveQueue.enqueueSave(uuid, normalized);
+    }
+    return normalized;
+  }
+
+  /**
+   * Get a nickname that isn't in the map, from the offline cache or else from storage.
+   */
+  @Nullable
+  private Component getOfflineNick(@NotNull UUID uuid) {
+    synchronized (offlineCache) {
+      if (offlineCache.containsKey(uuid)) {
+        return offlineCache.get(uuid);
+      }
+    }
+    Component nick;
+    SaveQueue.Change pending = saveQueue.pending(uuid);
+    if (pending != null) {
+      // Storage doesn't have this change yet
+      nick = pending.nick();
+    } else {
+      try {
+        nick = storage.get(uuid);
+        if (nick != null) {
+          nick = normalizeStored(uuid, nick);
+        }
+      } catch (IOException e) {
+        error("Error reading nickname from storage \nUUID: " + uuid);
+        e.printStackTrace();
+        return null;
+      }
+    }
+    synchronized (offlineCache) {
+      offlineCache.put(uuid, nick);
+    }
+    return nick;
+  }
+
+  /**
+   * Read a nickname into the offline cache on another thread, unless that's already happening.
+   */
+  private void fetchOfflineNick(@NotNull UUID uuid) {
+    if (offlineFetches.add(uuid)) {
+      Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+        try {
+          getOfflineNick(uuid);
+        } finally {
+          offlineFetches.remove(uuid);
+        }
+      });
+    }
   }
 
   /**
    * Set a user's nickname using an online {@link Player}.
-   * This will immediately be saved to Json.
+   * This will be queued to be saved to storage if it differs from the stored nickname.
+   * When <code>unique-nicknames</code> is enabled the nickname is claimed first, and nothing
+   * changes if someone else already has it.
    *
    * @param player Online player.
    * @param nick Player's new nickname.
+   * @return False if the nickname is taken and wasn't set.
    */
-  public void setNick(@NotNull Player player, @NotNull Component nick) {
-    nick = Component.empty().color(NamedTextColor.WHITE)
-        .decoration(TextDecoration.BOLD, false).append(nick);
-    nickMap.put(player.getUniqueId(), nick);
+  public boolean setNick(@NotNull Player player, @NotNull Component nick) {
+    nick = utils().normalize(Component.empty().color(NamedTextColor.WHITE)
+        .decoration(TextDecoration.BOLD, false).append(nick));
+    // Claims made by commands beforehand belong to the same player, so this still succeeds
+    if (!uniqueNicks.reserve(player.getUniqueId(), nick)) {
+      return false;
+    }
+    Component previous = putLoaded(player.getUniqueId(), nick);
+    synchronized (offlineCache) {
+      offlineCache.remove(player.getUniqueId());
+    }
+    player.displayName(nick);
+    if (config().TAB_NICKS) {
+      updateListName(player);
+    }
+    // Nothing to write if the nickname didn't actually change
+    if (!nick.equals(previous)) {
+      saveNick(player.getUniqueId());
+    }
+    return true;
+  }
+
+  /**
+   * Apply a player's stored nickname to their display name and, if enabled, their
+   * tab list name. Unlike {@link #setNick(Player, Component)} this never changes
+   * or saves the nickname. Used when a player joins.
+   *
+   * @param player Online player.
+   */
+  public void applyNick(@NotNull Player player) {
+    Component nick = nickMap.get(player.getUniqueId());
+    if (nick == null) {
+      return;
+    }
     player.displayName(nick);
     if (config().TAB_NICKS) {
       player.playerListName(nick);
     }
-    saveNick(player.getUniqueId());
+  }
+
+  /**
+   * Update a player's tab list name to their nickname. The first change is sent right away,
+   * further changes within <code>tab-update-delay</code> ticks are sent as one update once
+   * the delay is over.
+   *
+   * @param player Online player.
+   */
+  private void updateListName(@NotNull Player player) {
+    UUID uuid = player.getUniqueId();
+    int delay = config().TAB_UPDATE_DELAY;
+    if (delay <= 0) {
+      player.playerListName(nickMap.get(uuid));
+      return;
+    }
+    if (listNameWindows.putIfAbsent(uuid, false) != null) {
+      listNameWindows.put(uuid, true);
+      return;
+    }
+    player.playerListName(nickMap.get(uuid));
+    Bukkit.getScheduler().runTaskLater(this, () -> {
+      if (Boolean.TRUE.equals(listNameWindows.remove(uuid)) && player.isOnline()
+          && config().TAB_NICKS) {
+        // The nickname may have been removed in the meantime
+        Component nick = nickMap.get(uuid);
+        player.playerListName(nick == null ? Component.text(player.getName()) : nick);
+      }
+    }, delay);
   }
 
   /**
    * Remove a nickname from the map and from Json storage.
-   * It will be asynchronously removed from the file.
+   * The removal is queued and written to the file with the next batch.
    *
    * @param uuid The unique id to remove.
    */
   public void removeNick(@NotNull UUID uuid) {
-    nickMap.remove(uuid);
-    Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
-      try {
-        storage.removeFromJsonObject(uuid.toString());
-        debug("Removed nickname from user " + uuid + " from json.");
-      } catch (IOException e) {
-        error("Error removing nickname from file \nUUID: " + uuid);
-        e.printStackTrace();
+    removeLoaded(uuid);
+    if (lazyLoading) {
+      prefetched.remove(uuid);
+      synchronized (offlineCache) {
+        offlineCache.put(uuid, null);
       }
-    });
+      uniqueNicks.updateStored(uuid, null);
+    }
+    saveQueue.enqueueRemoval(uuid);
   }
 
   /**
    * Save nickname to Json from a unique id. Primarily used internally.
    * All <code>setNick(...)</code> methods will call this after saving
-   * the nickname to the map. If this is called using a unique id not
+   * the nickname to the map. The change is queued and written to the
+   * file with the next batch. If this is called using a unique id not
    * in the map an error will be thrown.
    *
    * @param uuid Unique id of user who's nickname is being saved.
    * @throws NullPointerException Will be thrown if the unique id is not in the map.
    */
-  @SuppressWarnings("ConstantConditions")
   @Internal
   public void saveNick(@NotNull UUID uuid) throws NullPointerException {
-    Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
-      try {
-        storage.putInJsonObject(uuid.toString(),
-            JsonParser.parseString(GsonComponentSerializer.gson().serialize(getNick(uuid))));
-        debug("Saved nickname from user " + uuid + " to json.");
-      } catch (IOException e) {
-        error("Error saving nickname to file \nUUID: " + uuid);
-        e.printStackTrace();
-      }
-    });
+    Component nick = Objects.requireNonNull(getNick(uuid));
+    if (lazyLoading) {
+      uniqueNicks.updateStored(uuid, nick);
+    }
+    saveQueue.enqueueSave(uuid, nick);
+  }
+
+  /**
+   * A nickname read on the pre-login thread, waiting for the player to join.
+   *
+   * @param nick The nickname, or null if the player has none.
+   * @param time When the nickname was read.
+   */
+  private record Prefetch(@Nullable Component nick, long time) {
   }
-}
\ No newline at end of file
+}
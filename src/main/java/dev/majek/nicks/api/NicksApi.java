@@ -25,9 +25,12 @@
 package dev.majek.nicks.api;
 
 import dev.majek.nicks.Nicks;
-import java.util.Iterator;
-import java.util.Map;
+import dev.majek.nicks.validation.NickFailure;
+import dev.majek.nicks.validation.NickRule;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.Bukkit;
@@ -42,6 +45,8 @@ import org.jetbrains.annotations.Nullable;
  */
 public class NicksApi {
 
+  private final List<NickRule> nickRules = new CopyOnWriteArrayList<>();
+
   /**
    * Shortcut for calling a Bukkit event.
    *
@@ -63,16 +68,8 @@ public class NicksApi {
    */
   @Nullable
   public OfflinePlayer playerFromNick(@NotNull String nickname) {
-    Iterator<Map.Entry<UUID, Component>> iterator = Nicks.core().getNickMap()
-        .entrySet().stream().iterator();
-    while (iterator.hasNext()) {
-      Map.Entry<UUID, Component> next = iterator.next();
-      if (PlainTextComponentSerializer.plainText().serialize(next.getValue())
-          .equalsIgnoreCase(nickname)) {
-        return Bukkit.getOfflinePlayer(next.getKey());
-      }
-    }
-    return null;
+    UUID uuid = Nicks.core().getUniqueIdFromNick(nickname);
+    return uuid == null ? null : Bukkit.getOfflinePlayer(uuid);
   }
 
   /**
@@ -107,4 +104,46 @@ public class NicksApi {
   public Component getNick(@NotNull OfflinePlayer player) {
     return Nicks.core().getNick(player.getUniqueId());
   }
-}
\ No newline at end of file
+
+  /**
+   * Check whether a nickname may be set, using the same rules as the nickname commands.
+   * Safe to call from any thread.
+   *
+   * @param owner The unique id of the player who would get the nickname, null if unknown.
+   * @param nick  The nickname.
+   * @return Why the nickname isn't allowed, or null if it's allowed.
+   */
+  @Nullable
+  public NickFailure validateNick(@Nullable UUID owner, @NotNull Component nick) {
+    return Nicks.config().NICK_VALIDATOR.validate(owner, nick);
+  }
+
+  /**
+   * Add a rule nicknames must pass, checked after the rules from the config.
+   * Rules stay registered across plugin reloads.
+   *
+   * @param rule The rule.
+   */
+  public void addNickRule(@NotNull NickRule rule) {
+    nickRules.add(rule);
+  }
+
+  /**
+   * Remove a rule added with {@link #addNickRule(NickRule)}.
+   *
+   * @param rule The rule.
+   */
+  public void removeNickRule(@NotNull NickRule rule) {
+    nickRules.remove(rule);
+  }
+
+  /**
+   * Get the rules added by other plugins.
+   *
+   * @return Unmodifiable list of rules.
+   */
+  @NotNull
+  public List<NickRule> getNickRules() {
+    return Collections.unmodifiableList(nickRules);
+  }
+}
@@ -27,11 +27,11 @@ package dev.majek.nicks.command;
 import dev.majek.nicks.Nicks;
 import dev.majek.nicks.api.SetNickEvent;
 import dev.majek.nicks.config.NicksMessages;
+import dev.majek.nicks.validation.NickFailure;
 import java.util.Collections;
 import java.util.List;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -56,6 +56,11 @@ public class CommandNick implements TabExecutor {
       return false;
     }
 
+    // Stop players changing their nickname too often, the change is only counted once it's made
+    if (Nicks.utils().isRateLimited(player)) {
+      return true;
+    }
+
     String nickInput = String.join(" ", args);
 
     // Check if we're supporting legacy
@@ -64,27 +69,11 @@ public class CommandNick implements TabExecutor {
     }
 
     Component nickname = MiniMessage.get().parse(nickInput);
-    String plainTextNick = PlainTextComponentSerializer.plainText().serialize(nickname);
-    int maxLength = Nicks.config().MAX_LENGTH;
-    int minLength = Nicks.config().MIN_LENGTH;
 
-    // Make sure the nickname is alphanumeric if that's enabled
-    if (Nicks.config().REQUIRE_ALPHANUMERIC) {
-      if (!plainTextNick.matches("[a-zA-Z0-9]+")) {
-        NicksMessages.NON_ALPHANUMERIC.send(player);
-        return true;
-      }
-    }
-
-    // Make sure the nickname isn't too short
-    if (plainTextNick.length() < minLength) {
-      NicksMessages.TOO_SHORT.send(player, minLength);
-      return true;
-    }
-
-    // Make sure the nickname isn't too long
-    if (plainTextNick.length() > maxLength) {
-      NicksMessages.TOO_LONG.send(player, maxLength);
+    // Make sure the nickname passes the configured rules
+    NickFailure failure = Nicks.config().NICK_VALIDATOR.validate(player.getUniqueId(), nickname);
+    if (failure != null) {
+      failure.send(player);
       return true;
     }
 
@@ -95,8 +84,19 @@ public class CommandNick implements TabExecutor {
       return true;
     }
 
+    // Claim the nickname so nobody else can take it before it's set
+    if (!Nicks.core().getUniqueNicks().reserve(player.getUniqueId(), nickEvent.newNick())) {
+      NicksMessages.NICKNAME_TAKEN.send(player);
+      return true;
+    }
+    if (Nicks.utils().useRateLimit(player)) {
+      Nicks.core().getUniqueNicks().release(player.getUniqueId(), nickEvent.newNick());
+      return true;
+    }
+
     // Set nick
     Nicks.core().setNick(player, nickEvent.newNick());
+    Nicks.config().NICK_VALIDATOR.warnImpersonation(player.getUniqueId(), nickEvent.newNick());
     NicksMessages.NICKNAME_SET.send(player, nickEvent.newNick());
 
     return true;
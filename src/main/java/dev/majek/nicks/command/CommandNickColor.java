@@ -56,6 +56,11 @@ public class CommandNickColor implements TabExecutor {
       return false;
     }
 
+    // Stop players changing their nickname too often, the change is only counted once it's made
+    if (Nicks.utils().isRateLimited(player)) {
+      return true;
+    }
+
     String nickInput = String.join(" ", args);
 
     // Check if we're supporting legacy
@@ -78,12 +83,15 @@ public class CommandNickColor implements TabExecutor {
     // Call event
     NickColorEvent colorEvent = new NickColorEvent(player, nickname, player.displayName());
     Nicks.api().callEvent(colorEvent);
-    if (colorEvent.isCancelled()) {
+    if (colorEvent.isCancelled() || Nicks.utils().useRateLimit(player)) {
       return true;
     }
 
-    // Set nick
-    Nicks.core().setNick(player, colorEvent.newNick());
+    // Set nick, a listener may have changed it to one that's taken
+    if (!Nicks.core().setNick(player, colorEvent.newNick())) {
+      NicksMessages.NICKNAME_TAKEN.send(player);
+      return true;
+    }
     NicksMessages.NICKNAME_SET.send(player, colorEvent.newNick());
 
     return true;
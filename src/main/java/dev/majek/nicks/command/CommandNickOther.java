@@ -27,13 +27,11 @@ package dev.majek.nicks.command;
 import dev.majek.nicks.Nicks;
 import dev.majek.nicks.api.SetNickOtherEvent;
 import dev.majek.nicks.config.NicksMessages;
-import dev.majek.nicks.util.TabCompleterBase;
+import dev.majek.nicks.validation.NickFailure;
 import java.util.Collections;
 import java.util.List;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
-import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -52,8 +50,8 @@ public class CommandNickOther implements TabExecutor {
       return false;
     }
 
-    // Make sure the target player is online
-    Player target = Bukkit.getPlayer(args[0]);
+    // Make sure the target player is online, they may be given by nickname
+    Player target = Nicks.utils().findOnlinePlayer(args[0]);
     if (target == null) {
       NicksMessages.UNKNOWN_PLAYER.send(sender, args[0]);
       return true;
@@ -70,31 +68,14 @@ public class CommandNickOther implements TabExecutor {
     }
 
     Component nickname = MiniMessage.get().parse(nickInput);
-    String plainTextNick = PlainTextComponentSerializer.plainText().serialize(nickname);
-    int maxLength = Nicks.config().MAX_LENGTH;
-    int minLength = Nicks.config().MIN_LENGTH;
 
-    // Make sure the nickname is alphanumeric if that's enabled
-    if (Nicks.config().REQUIRE_ALPHANUMERIC) {
-      if (!plainTextNick.matches("[a-zA-Z0-9]+")) {
-        NicksMessages.NON_ALPHANUMERIC.send(sender);
-        return true;
-      }
-    }
-
-    // Make sure the nickname isn't too short
-    if (plainTextNick.length() < minLength) {
-      NicksMessages.TOO_SHORT.send(sender, minLength);
-      return true;
-    }
-
-    // Make sure the nickname isn't too long
-    if (plainTextNick.length() > maxLength) {
-      NicksMessages.TOO_LONG.send(sender, maxLength);
+    // Make sure the nickname passes the configured rules
+    NickFailure failure = Nicks.config().NICK_VALIDATOR.validate(target.getUniqueId(), nickname);
+    if (failure != null) {
+      failure.send(sender);
       return true;
     }
 
-
     // Call event
     SetNickOtherEvent nickEvent = new SetNickOtherEvent(sender, target,
         nickname, target.displayName());
@@ -103,8 +84,15 @@ public class CommandNickOther implements TabExecutor {
       return true;
     }
 
+    // Claim the nickname so nobody else can take it before it's set
+    if (!Nicks.core().getUniqueNicks().reserve(target.getUniqueId(), nickEvent.newNick())) {
+      NicksMessages.NICKNAME_TAKEN.send(sender);
+      return true;
+    }
+
     // Set nick
     Nicks.core().setNick(target, nickEvent.newNick());
+    Nicks.config().NICK_VALIDATOR.warnImpersonation(target.getUniqueId(), nickEvent.newNick());
     NicksMessages.NICKNAME_SET_OTHER.send(sender, target, nickEvent.newNick());
 
     return true;
@@ -114,7 +102,7 @@ public class CommandNickOther implements TabExecutor {
   public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
                                               @NotNull String label, @NotNull String[] args) {
     if (args.length == 1) {
-      return TabCompleterBase.getOnlinePlayers(args[0]);
+      return Nicks.core().getCompletionIndex().names(args[0]);
     } else {
       return Collections.emptyList();
     }
@@ -28,11 +28,9 @@ import dev.majek.nicks.Nicks;
 import dev.majek.nicks.api.NoNickEvent;
 import dev.majek.nicks.api.NoNickOtherEvent;
 import dev.majek.nicks.config.NicksMessages;
-import dev.majek.nicks.util.TabCompleterBase;
 import java.util.Collections;
 import java.util.List;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -77,8 +75,8 @@ public class CommandNoNick implements TabExecutor {
         return true;
       }
 
-      // Make sure the target player is online
-      Player target = Bukkit.getPlayer(args[0]);
+      // Make sure the target player is online, they may be given by nickname
+      Player target = Nicks.utils().findOnlinePlayer(args[0]);
       if (target == null) {
         NicksMessages.UNKNOWN_PLAYER.send(sender, args[0]);
         return true;
@@ -106,7 +104,7 @@ public class CommandNoNick implements TabExecutor {
   public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
                                     @NotNull String label, @NotNull String[] args) {
     if (args.length == 1) {
-      return TabCompleterBase.getOnlinePlayers(args[0]);
+      return Nicks.core().getCompletionIndex().names(args[0]);
     } else {
       return Collections.emptyList();
     }
@@ -0,0 +1,79 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.command;
+
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.config.NicksMessages;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Handles <code>/realname</code> command execution and tab completion.
+ */
+public class CommandRealName implements TabExecutor {
+
+  @Override
+  public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command,
+                           @NotNull String label, @NotNull String[] args) {
+    if (args.length == 0) {
+      return false;
+    }
+
+    // Nicknames may contain spaces
+    String nickInput = String.join(" ", args);
+
+    UUID uuid = Nicks.core().getUniqueIdFromNick(nickInput);
+    Component nickname = uuid == null ? null : Nicks.core().getNick(uuid);
+    if (nickname == null) {
+      NicksMessages.UNKNOWN_NICKNAME.send(sender, nickInput);
+      return true;
+    }
+
+    OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+    NicksMessages.REAL_NAME.send(sender, nickname,
+        Objects.requireNonNullElse(player.getName(), uuid.toString()));
+
+    return true;
+  }
+
+  @Override
+  public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
+                                    @NotNull String label, @NotNull String[] args) {
+    if (args.length == 1) {
+      return Nicks.core().getCompletionIndex().nicks(args[0]);
+    } else {
+      return Collections.emptyList();
+    }
+  }
+}
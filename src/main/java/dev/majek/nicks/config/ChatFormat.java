@@ -0,0 +1,113 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.config;
+
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.hook.PlaceholderHook;
+import dev.majek.nicks.util.ComponentTemplate;
+import java.util.List;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>A chat format compiled into a template.</p>
+ * <p>Besides {displayname}, {message} and {viewer}, every PlaceholderAPI placeholder in the
+ * format becomes a slot of its own, so placeholder values are inserted as components and can't
+ * inject formatting into the rest of the format.</p>
+ */
+public class ChatFormat {
+
+  private static final String[] SLOTS = {"{displayname}", "{message}", "{viewer}"};
+
+  private final ComponentTemplate template;
+  private final String[]          placeholders;
+  private final boolean           viewerDependent;
+
+  /**
+   * Compile a chat format.
+   *
+   * @param format The format in MiniMessage.
+   */
+  public ChatFormat(@NotNull String format) {
+    List<String> found = PlaceholderHook.find(format);
+    this.placeholders = found.toArray(new String[0]);
+    String[] slots = new String[SLOTS.length + placeholders.length];
+    System.arraycopy(SLOTS, 0, slots, 0, SLOTS.length);
+    System.arraycopy(placeholders, 0, slots, SLOTS.length, placeholders.length);
+    this.template = ComponentTemplate.compile(format, slots);
+    this.viewerDependent = template.uses("{viewer}")
+        || found.stream().anyMatch(PlaceholderHook::isRelational);
+  }
+
+  /**
+   * Whether the rendered message depends on who is reading it, either because the format
+   * includes {viewer} or a relational placeholder. Otherwise a message can be rendered once
+   * and shared by every viewer.
+   *
+   * @return True if every viewer needs their own render.
+   */
+  public boolean isViewerDependent() {
+    return viewerDependent;
+  }
+
+  /**
+   * Render a chat message.
+   *
+   * @param source      The player who sent the message.
+   * @param displayName The sender's display name.
+   * @param message     The message.
+   * @param viewer      The audience reading the message, null if the render is shared.
+   * @return The formatted message.
+   */
+  public @NotNull Component render(@NotNull Player source, @NotNull Component displayName,
+                                   @NotNull Component message, @Nullable Audience viewer) {
+    ComponentLike[] values = new ComponentLike[SLOTS.length + placeholders.length];
+    values[0] = displayName;
+    values[1] = message;
+    values[2] = viewer == null ? Component.empty() : viewerName(viewer);
+    Player viewingPlayer = viewer instanceof Player player ? player : null;
+    for (int i = 0; i < placeholders.length; i++) {
+      values[SLOTS.length + i] = Nicks.placeholders().resolve(source, viewingPlayer, placeholders[i]);
+    }
+    return template.render(values);
+  }
+
+  /**
+   * The name to show for the audience reading a message.
+   */
+  private Component viewerName(Audience viewer) {
+    if (viewer instanceof Player player) {
+      return player.displayName();
+    } else if (viewer instanceof CommandSender sender) {
+      return Component.text(sender.getName());
+    }
+    return Component.empty();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.config;
+
+import dev.majek.nicks.Nicks;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>The chat formats from the config, compiled once per reload.</p>
+ * <p>Each player's format is chosen by permission and remembered, so chat doesn't check every
+ * format's permission on every message. With LuckPerms installed a remembered choice is
+ * dropped whenever the player's permissions change and isn't checked otherwise. Without it, a
+ * choice is dropped as soon as the player loses its permission and is re-checked periodically
+ * to pick up newly granted permissions. A reload creates a new instance, which forgets every
+ * choice.</p>
+ */
+public class ChatFormats {
+
+  private final ChatFormat             defaultFormat;
+  private final List<Format>           formats;
+  private final long                   recheckMillis;
+  private final Map<UUID, Choice>      choices;
+
+  /**
+   * Compile the chat formats.
+   *
+   * @param defaultFormat  The format used by players without permission for any other format.
+   * @param section        The section of named formats, may be null if there are none.
+   * @param recheckSeconds How often a player's remembered format is chosen again.
+   */
+  public ChatFormats(@NotNull String defaultFormat, @Nullable ConfigurationSection section,
+                     int recheckSeconds) {
+    this.defaultFormat = new ChatFormat(defaultFormat);
+    this.formats = new ArrayList<>();
+    if (section != null) {
+      for (String name : section.getKeys(false)) {
+        String format = section.getString(name + ".format");
+        if (format == null) {
+          continue;
+        }
+        formats.add(new Format(section.getString(name + ".permission",
+            "papernicks.format." + name), section.getInt(name + ".priority", 0),
+            new ChatFormat(format)));
+      }
+    }
+    // Highest priority first so the first match wins
+    formats.sort(Comparator.comparingInt(Format::priority).reversed());
+    this.recheckMillis = Math.max(0, recheckSeconds) * 1000L;
+    this.choices = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * The format used by players without permission for any other format.
+   *
+   * @return Default format.
+   */
+  public @NotNull ChatFormat defaultFormat() {
+    return defaultFormat;
+  }
+
+  /**
+   * Get the format a player's messages should use. Safe to call from async chat threads.
+   *
+   * @param player The player sending a message.
+   * @return The player's chat format.
+   */
+  public @NotNull ChatFormat forPlayer(@NotNull Player player) {
+    if (formats.isEmpty()) {
+      return defaultFormat;
+    }
+    long now = System.currentTimeMillis();
+    Choice choice = choices.get(player.getUniqueId());
+    if (choice != null && (Nicks.permissions().isTracking() || (now < choice.expires()
+        && (choice.format() == null || player.hasPermission(choice.format().permission()))))) {
+      return choice.chatFormat();
+    }
+    Format chosen = null;
+    for (Format format : formats) {
+      if (player.hasPermission(format.permission())) {
+        chosen = format;
+        break;
+      }
+    }
+    choice = new Choice(chosen, chosen == null ? defaultFormat : chosen.format(),
+        now + recheckMillis);
+    choices.put(player.getUniqueId(), choice);
+    return choice.chatFormat();
+  }
+
+  /**
+   * Forget a player's remembered format, for example when they leave or their permissions
+   * change.
+   *
+   * @param uuid The player's unique id.
+   */
+  public void invalidate(@NotNull UUID uuid) {
+    choices.remove(uuid);
+  }
+
+  private record Format(String permission, int priority, ChatFormat format) {
+  }
+
+  /**
+   * A remembered choice. The format is null if the player uses the default format.
+   */
+  private record Choice(@Nullable Format format, ChatFormat chatFormat, long expires) {
+  }
+}
@@ -26,6 +26,15 @@ package dev.majek.nicks.config;
 
 import com.google.gson.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Handles Json storage files.
@@ -33,6 +42,8 @@ import java.io.*;
 public class JsonConfig {
 
   private final File configFile;
+  private final File tempFile;
+  private final File backupFile;
   private final File pluginDataFolder;
   private final String name;
   private final Gson gson;
@@ -47,6 +58,8 @@ public class JsonConfig {
   public JsonConfig(File pluginDataFolder, String name) {
     this.name = name;
     this.configFile = new File(pluginDataFolder, this.name);
+    this.tempFile = new File(pluginDataFolder, this.name + ".tmp");
+    this.backupFile = new File(pluginDataFolder, this.name + ".bak");
     this.pluginDataFolder = pluginDataFolder;
     this.gson = new GsonBuilder().setPrettyPrinting().create();
   }
@@ -161,10 +174,10 @@ public class JsonConfig {
    * Get the whole file as a JsonObject.
    *
    * @return File as JsonObject.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file is not found or does not contain a Json object.
    */
-  public JsonObject toJsonObject() throws FileNotFoundException {
-    return (JsonObject) JsonParser.parseReader(new FileReader(configFile));
+  public JsonObject toJsonObject() throws IOException {
+    return readJson(configFile);
   }
 
   /**
@@ -172,10 +185,10 @@ public class JsonConfig {
    *
    * @param k The key.
    * @param v The value.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file cannot be read or written.
    */
-  public void putInJsonObject(String k, JsonElement v) throws FileNotFoundException {
-    JsonObject obj = (JsonObject) JsonParser.parseReader(new FileReader(configFile));
+  public synchronized void putInJsonObject(String k, JsonElement v) throws IOException {
+    JsonObject obj = readJson(configFile);
     obj.add(k, v);
     saveUpdatedJson(obj);
   }
@@ -185,10 +198,10 @@ public class JsonConfig {
    *
    * @param k The key.
    * @param v The value.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file cannot be read or written.
    */
-  public void putInJsonObject(String k, String v) throws FileNotFoundException {
-    JsonObject obj = (JsonObject) JsonParser.parseReader(new FileReader(configFile));
+  public synchronized void putInJsonObject(String k, String v) throws IOException {
+    JsonObject obj = readJson(configFile);
     obj.addProperty(k, v);
     saveUpdatedJson(obj);
   }
@@ -198,10 +211,10 @@ public class JsonConfig {
    *
    * @param k The key.
    * @param v The value.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file cannot be read or written.
    */
-  public void putInJsonObject(String k, Integer v) throws FileNotFoundException {
-    JsonObject obj = (JsonObject) JsonParser.parseReader(new FileReader(configFile));
+  public synchronized void putInJsonObject(String k, Integer v) throws IOException {
+    JsonObject obj = readJson(configFile);
     obj.addProperty(k, v);
     saveUpdatedJson(obj);
   }
@@ -211,10 +224,10 @@ public class JsonConfig {
    *
    * @param k The key.
    * @param v The value.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file cannot be read or written.
    */
-  public void putInJsonObject(String k, Boolean v) throws FileNotFoundException {
-    JsonObject obj = (JsonObject) JsonParser.parseReader(new FileReader(configFile));
+  public synchronized void putInJsonObject(String k, Boolean v) throws IOException {
+    JsonObject obj = readJson(configFile);
     obj.addProperty(k, v);
     saveUpdatedJson(obj);
   }
@@ -223,25 +236,115 @@ public class JsonConfig {
    * Remove a key and it's value from Json.
    *
    * @param key The key to remove.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file cannot be read or written.
    */
-  public void removeFromJsonObject(String key) throws FileNotFoundException {
-    JsonObject obj = (JsonObject) JsonParser.parseReader(new FileReader(configFile));
+  public synchronized void removeFromJsonObject(String key) throws IOException {
+    JsonObject obj = readJson(configFile);
     obj.remove(key);
     saveUpdatedJson(obj);
   }
 
   /**
-   * Save the updated JsonObject to the file.
+   * Apply a batch of changes to Json, reading and rewriting the file only once.
+   *
+   * @param puts     Keys and values to add or replace.
+   * @param removals Keys to remove.
+   * @throws IOException if the file cannot be read or written.
+   */
+  public synchronized void applyChanges(Map<String, JsonElement> puts, Collection<String> removals)
+      throws IOException {
+    JsonObject obj = readJson(configFile);
+    puts.forEach(obj::add);
+    removals.forEach(obj::remove);
+    saveUpdatedJson(obj);
+  }
+
+  /**
+   * Make sure the file is readable, restoring the backup kept by the last successful save
+   * if the file is missing or corrupt. Call this before {@link JsonConfig#createConfig()}
+   * so a lost file isn't replaced with an empty one.
+   *
+   * @return True if the file was restored from the backup.
+   * @throws IOException if the backup cannot be restored.
+   */
+  public synchronized boolean recover() throws IOException {
+    // A leftover temp file is from a save that never completed
+    Files.deleteIfExists(tempFile.toPath());
+    if (isReadable(configFile) || !isReadable(backupFile)) {
+      return false;
+    }
+    Files.copy(backupFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    replace(tempFile.toPath(), configFile.toPath());
+    return true;
+  }
+
+  /**
+   * Save the updated JsonObject to the file. The Json is written to a temporary file and
+   * forced to disk, the current file is kept as a backup, and the temporary file then
+   * atomically replaces the current file. A crash at any point leaves either the old or
+   * the new file intact, and readers never see a partially written file.
    *
    * @param object The object to save.
-   * @throws FileNotFoundException if the file is not found.
+   * @throws IOException if the file cannot be written.
    */
-  private void saveUpdatedJson(JsonObject object) throws FileNotFoundException {
-    PrintWriter writer = new PrintWriter(configFile);
-    writer.write(gson.toJson(object));
-    writer.flush();
-    writer.close();
+  private void saveUpdatedJson(JsonObject object) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(tempFile)) {
+      out.write(gson.toJson(object).getBytes(StandardCharsets.UTF_8));
+      out.getFD().sync();
+    }
+    if (configFile.exists()) {
+      Files.deleteIfExists(backupFile.toPath());
+      try {
+        Files.createLink(backupFile.toPath(), configFile.toPath());
+      } catch (IOException | UnsupportedOperationException e) {
+        Files.copy(configFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    replace(tempFile.toPath(), configFile.toPath());
+  }
+
+  /**
+   * Read a file as a JsonObject, closing it afterwards.
+   */
+  private JsonObject readJson(File file) throws IOException {
+    try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+      JsonElement element = JsonParser.parseReader(reader);
+      if (!element.isJsonObject()) {
+        throw new IOException(file.getName() + " does not contain a Json object.");
+      }
+      return element.getAsJsonObject();
+    } catch (JsonParseException e) {
+      throw new IOException(file.getName() + " contains malformed Json.", e);
+    }
+  }
+
+  /**
+   * Whether a file exists and contains a Json object.
+   */
+  private boolean isReadable(File file) {
+    if (!file.exists()) {
+      return false;
+    }
+    try {
+      readJson(file);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Move a file over another, atomically if the file system supports it.
+   */
+  private void replace(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
   }
 
   /**
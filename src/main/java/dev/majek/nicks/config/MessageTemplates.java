@@ -0,0 +1,218 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.config;
+
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.hook.PlaceholderHook;
+import dev.majek.nicks.util.ComponentTemplate;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>The plugin messages from the config and the locale files, read once per reload.</p>
+ * <p>Players get messages in their client's locale if there's a <code>messages_&lt;locale&gt;.yml</code>
+ * file for it in the plugin folder, such as <code>messages_de.yml</code> or
+ * <code>messages_pt_br.yml</code>. Messages missing from a region's file fall back to the
+ * language's file and then to the messages section of the config.</p>
+ * <p>Each message is parsed into a {@link ComponentTemplate} the first time it's sent in a
+ * locale and reused until the next reload, which replaces the whole instance. Sending a message
+ * never reads the Bukkit configuration. PlaceholderAPI placeholders in a message become extra
+ * slots filled in for the player receiving it.</p>
+ */
+public class MessageTemplates {
+
+  private final Bundle              defaults;
+  private final Map<String, Bundle> bundles;
+  private final Map<Locale, Bundle> byLocale;
+
+  /**
+   * Read the messages.
+   *
+   * @param section    The messages section of the config, may be null if it's missing.
+   * @param dataFolder The folder to look for locale files in.
+   */
+  public MessageTemplates(@Nullable ConfigurationSection section, @NotNull File dataFolder) {
+    this.defaults = new Bundle(read(section), null);
+    this.bundles = new HashMap<>();
+    Map<String, Map<String, String>> files = new HashMap<>();
+    File[] found = dataFolder.listFiles((dir, name) -> name.startsWith("messages_")
+        && name.endsWith(".yml"));
+    if (found != null) {
+      for (File file : found) {
+        String name = file.getName();
+        String locale = name.substring("messages_".length(), name.length() - ".yml".length())
+            .replace('-', '_').toLowerCase(Locale.ROOT);
+        files.put(locale, read(YamlConfiguration.loadConfiguration(file)));
+      }
+    }
+    // Languages first so regions can fall back to them
+    files.forEach((locale, messages) -> {
+      if (!locale.contains("_")) {
+        bundles.put(locale, new Bundle(messages, defaults));
+      }
+    });
+    files.forEach((locale, messages) -> {
+      if (locale.contains("_")) {
+        String language = locale.substring(0, locale.indexOf('_'));
+        bundles.put(locale, new Bundle(messages, bundles.getOrDefault(language, defaults)));
+      }
+    });
+    if (!bundles.isEmpty()) {
+      Nicks.log("Loaded messages for locales " + String.join(", ", bundles.keySet()) + ".");
+    }
+    this.byLocale = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Render a message.
+   *
+   * @param message  The message.
+   * @param audience The recipient, whose locale is used and whose PlaceholderAPI placeholders
+   *                 are resolved if it's a player. May be null.
+   * @param values   One value per argument slot of the message, in order.
+   * @return The rendered message.
+   */
+  public @NotNull Component render(@NotNull Message message, @Nullable Audience audience,
+                                   @NotNull ComponentLike... values) {
+    Player player = audience instanceof Player p ? p : null;
+    Compiled entry = (player == null ? defaults : bundle(player.locale())).get(message);
+    if (entry.placeholders().length == 0) {
+      return entry.template().render(values);
+    }
+    ComponentLike[] all = Arrays.copyOf(values, values.length + entry.placeholders().length);
+    for (int i = 0; i < entry.placeholders().length; i++) {
+      String placeholder = entry.placeholders()[i];
+      all[values.length + i] = player != null
+          ? Nicks.placeholders().resolve(player, player, placeholder) : Component.text(placeholder);
+    }
+    return entry.template().render(all);
+  }
+
+  /**
+   * The most specific bundle for a locale, remembered so each locale is only looked up once.
+   */
+  private Bundle bundle(Locale locale) {
+    if (bundles.isEmpty()) {
+      return defaults;
+    }
+    return byLocale.computeIfAbsent(locale, key -> {
+      String language = key.getLanguage().toLowerCase(Locale.ROOT);
+      String country = key.getCountry().toLowerCase(Locale.ROOT);
+      Bundle bundle = country.isEmpty() ? null : bundles.get(language + "_" + country);
+      return bundle != null ? bundle : bundles.getOrDefault(language, defaults);
+    });
+  }
+
+  private static Map<String, String> read(@Nullable ConfigurationSection section) {
+    Map<String, String> messages = new HashMap<>();
+    if (section != null) {
+      for (String key : section.getKeys(false)) {
+        String value = section.getString(key);
+        if (value != null) {
+          messages.put(key, value);
+        }
+      }
+    }
+    return Collections.unmodifiableMap(messages);
+  }
+
+  private static Compiled compile(Message message, String value) {
+    List<String> placeholders = new ArrayList<>();
+    if (Nicks.placeholders().isEnabled()) {
+      for (String placeholder : PlaceholderHook.find(value)) {
+        if (!Arrays.asList(message.slots()).contains(placeholder)) {
+          placeholders.add(placeholder);
+        }
+      }
+    }
+    String[] slots = Arrays.copyOf(message.slots(), message.slots().length + placeholders.size());
+    for (int i = 0; i < placeholders.size(); i++) {
+      slots[message.slots().length + i] = placeholders.get(i);
+    }
+    return new Compiled(ComponentTemplate.compile(value, slots),
+        placeholders.toArray(new String[0]));
+  }
+
+  /**
+   * A message definition.
+   *
+   * @param key          The key under the messages section of the config.
+   * @param defaultValue The message used if the config doesn't have it.
+   * @param slots        The argument placeholders in the message, such as <code>%player%</code>.
+   */
+  public record Message(@NotNull String key, @NotNull String defaultValue,
+                        @NotNull String... slots) {
+  }
+
+  /**
+   * The messages of one locale. Messages it doesn't have are taken from the parent, sharing
+   * the parent's compiled template.
+   */
+  private static final class Bundle {
+
+    private final Map<String, String>   raw;
+    private final @Nullable Bundle      parent;
+    private final Map<String, Compiled> compiled;
+
+    private Bundle(Map<String, String> raw, @Nullable Bundle parent) {
+      this.raw = raw;
+      this.parent = parent;
+      this.compiled = new ConcurrentHashMap<>();
+    }
+
+    private Compiled get(Message message) {
+      Compiled entry = compiled.get(message.key());
+      if (entry != null) {
+        return entry;
+      }
+      String value = raw.get(message.key());
+      if (value == null) {
+        entry = parent != null ? parent.get(message) : compile(message, message.defaultValue());
+      } else {
+        entry = compile(message, value);
+      }
+      Compiled existing = compiled.putIfAbsent(message.key(), entry);
+      return existing != null ? existing : entry;
+    }
+  }
+
+  private record Compiled(ComponentTemplate template, String[] placeholders) {
+  }
+}
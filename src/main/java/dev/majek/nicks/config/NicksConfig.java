@@ -25,6 +25,13 @@
 package dev.majek.nicks.config;
 
 import dev.majek.nicks.Nicks;
+import dev.majek.nicks.util.ComponentTemplate;
+import dev.majek.nicks.validation.BlockedWords;
+import dev.majek.nicks.validation.NickValidator;
+import net.kyori.adventure.key.InvalidKeyException;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.sound.Sound;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Handles all config options in the plugin.
@@ -32,13 +39,37 @@ import dev.majek.nicks.Nicks;
 public class NicksConfig {
 
   public Boolean TAB_NICKS;
+  public Integer TAB_UPDATE_DELAY;
   public Integer MAX_LENGTH;
   public Integer MIN_LENGTH;
   public Boolean REQUIRE_ALPHANUMERIC;
+  public Boolean UNIQUE_NICKNAMES;
+  public Boolean BLOCK_REAL_NAMES;
+  public NickValidator NICK_VALIDATOR;
+  public final BlockedWords BLOCKED_WORDS = new BlockedWords();
   public Boolean CHAT_FORMATTER;
   public String  CHAT_FORMAT;
+  public Boolean PRECOMPILE_CHAT_FORMAT;
+  public ChatFormats CHAT_FORMATS;
+  public Integer PLACEHOLDER_CACHE;
+  public Boolean MENTIONS;
+  public ComponentTemplate MENTION_FORMAT;
+  public Sound   MENTION_SOUND;
   public Boolean LEGACY_COLORS;
+  public Boolean RATE_LIMIT;
+  public Integer RATE_LIMIT_BURST;
+  public Integer RATE_LIMIT_REFILL;
+  public String  STORAGE_BACKEND;
+  public Integer COMPACT_INTERVAL;
+  public Integer FLUSH_INTERVAL;
+  public Integer MAX_BATCH_SIZE;
+  public Integer QUEUE_DEPTH;
+  public Boolean LAZY_LOADING;
+  public Integer EVICT_AFTER;
+  public Integer OFFLINE_CACHE_SIZE;
   public Boolean DEBUG;
+  // Read from async threads, swapped as a whole on reload
+  public volatile MessageTemplates MESSAGES;
 
   public NicksConfig() {
     reload();
@@ -49,12 +80,55 @@ public class NicksConfig {
    */
   public void reload() {
     TAB_NICKS = Nicks.core().getConfig().getBoolean("tab-nicks", false);
+    TAB_UPDATE_DELAY = Nicks.core().getConfig().getInt("tab-update-delay", 10);
     MAX_LENGTH = Nicks.core().getConfig().getInt("max-length", 20);
     MIN_LENGTH = Nicks.core().getConfig().getInt("min-length", 3);
     REQUIRE_ALPHANUMERIC = Nicks.core().getConfig().getBoolean("require-alphanumeric", false);
+    UNIQUE_NICKNAMES = Nicks.core().getConfig().getBoolean("unique-nicknames", false);
+    BLOCK_REAL_NAMES = Nicks.core().getConfig().getBoolean("block-real-names", false);
+    BLOCKED_WORDS.reload();
+    NICK_VALIDATOR = new NickValidator(Nicks.core().getConfig(), BLOCKED_WORDS);
     CHAT_FORMATTER = Nicks.core().getConfig().getBoolean("chat-formatter", false);
     CHAT_FORMAT = Nicks.core().getConfig().getString("chat-format", "{displayname}: {message}");
+    PRECOMPILE_CHAT_FORMAT = Nicks.core().getConfig().getBoolean("precompile-chat-format", true);
+    CHAT_FORMATS = new ChatFormats(CHAT_FORMAT, Nicks.core().getConfig()
+        .getConfigurationSection("chat-formats"), Nicks.core().getConfig()
+        .getInt("chat-format-recheck", 30));
+    PLACEHOLDER_CACHE = Nicks.core().getConfig().getInt("placeholder-cache", 5);
+    MENTIONS = Nicks.core().getConfig().getBoolean("mentions.enabled", true);
+    MENTION_FORMAT = ComponentTemplate.compile(Nicks.core().getConfig()
+        .getString("mentions.format", "<yellow>{mention}"), "{mention}");
+    MENTION_SOUND = mentionSound(Nicks.core().getConfig()
+        .getString("mentions.sound", "entity.experience_orb.pickup"));
     LEGACY_COLORS = Nicks.core().getConfig().getBoolean("legacy-colors", false);
+    RATE_LIMIT = Nicks.core().getConfig().getBoolean("rate-limit.enabled", true);
+    RATE_LIMIT_BURST = Nicks.core().getConfig().getInt("rate-limit.burst", 3);
+    RATE_LIMIT_REFILL = Nicks.core().getConfig().getInt("rate-limit.refill", 10);
+    STORAGE_BACKEND = Nicks.core().getConfig().getString("storage.backend", "json");
+    COMPACT_INTERVAL = Nicks.core().getConfig().getInt("storage.compact-interval", 300);
+    FLUSH_INTERVAL = Nicks.core().getConfig().getInt("storage.flush-interval", 5);
+    MAX_BATCH_SIZE = Nicks.core().getConfig().getInt("storage.max-batch-size", 100);
+    QUEUE_DEPTH = Nicks.core().getConfig().getInt("storage.queue-depth", 1000);
+    LAZY_LOADING = Nicks.core().getConfig().getBoolean("storage.lazy-loading", false);
+    EVICT_AFTER = Nicks.core().getConfig().getInt("storage.evict-after", 300);
+    OFFLINE_CACHE_SIZE = Nicks.core().getConfig().getInt("storage.offline-cache-size", 1000);
     DEBUG = Nicks.core().getConfig().getBoolean("debug", false);
+    MESSAGES = new MessageTemplates(Nicks.core().getConfig().getConfigurationSection("messages"),
+        Nicks.core().getDataFolder());
+  }
+
+  /**
+   * Parse the sound played to mentioned players, null if it's disabled or invalid.
+   */
+  private @Nullable Sound mentionSound(@Nullable String key) {
+    if (key == null || key.isBlank()) {
+      return null;
+    }
+    try {
+      return Sound.sound(Key.key(key), Sound.Source.PLAYER, 1.0F, 1.0F);
+    } catch (InvalidKeyException e) {
+      Nicks.error("Invalid mention sound " + key + ", mentions will not play a sound.");
+      return null;
+    }
   }
 }
\ No newline at end of file
@@ -25,71 +25,107 @@
 package dev.majek.nicks.config;
 
 import dev.majek.nicks.Nicks;
+import dev.majek.nicks.config.MessageTemplates.Message;
+import java.util.function.Function;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextReplacementConfig;
-import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.ComponentLike;
 import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * Handles all plugin messages.
+ * Handles all plugin messages. Messages are rendered from templates compiled once per reload,
+ * see {@link MessageTemplates}.
  */
 public interface NicksMessages {
 
-  Args0 INVALID_SENDER = () -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.invalidSender", "<red>You must be in-game to use this command."));
+  Args0 INVALID_SENDER = args0("invalidSender", "<red>You must be in-game to use this command.");
 
-  Args1<String> UNKNOWN_PLAYER = playerName -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.unknownPlayer", "<red>Unknown player %player%."))
-      .replaceText(TextReplacementConfig.builder().matchLiteral("%player%").replacement(playerName).build());
+  Args1<String> UNKNOWN_PLAYER = args1("unknownPlayer", "<red>Unknown player %player%.",
+      "%player%", Component::text);
 
-  Args0 NO_PERMISSION = () -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.noPermission", "<red>You do not have permission to execute this command."));
+  Args0 NO_PERMISSION = args0("noPermission",
+      "<red>You do not have permission to execute this command.");
 
-  Args1<Integer> TOO_SHORT = minLength -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.tooShort", "<red>That nickname is too short. Minimum length is "
-          + "%length% characters.")).replaceText(TextReplacementConfig.builder().matchLiteral("%length%")
-      .replacement(String.valueOf(minLength)).build());
+  Args1<Integer> TOO_SHORT = args1("tooShort", "<red>That nickname is too short. Minimum length is "
+      + "%length% characters.", "%length%", Component::text);
 
-  Args1<Integer> TOO_LONG = maxLength -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.tooLong", "<red>That nickname is too long. Maximum length is "
-          + "%length% characters.")).replaceText(TextReplacementConfig.builder().matchLiteral("%length%")
-      .replacement(String.valueOf(maxLength)).build());
+  Args1<Integer> TOO_LONG = args1("tooLong", "<red>That nickname is too long. Maximum length is "
+      + "%length% characters.", "%length%", Component::text);
 
-  Args0 NON_ALPHANUMERIC = () -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.nonAlphanumeric", "<red>Your nickname must be alphanumeric."));
+  Args0 NON_ALPHANUMERIC = args0("nonAlphanumeric", "<red>Your nickname must be alphanumeric.");
 
-  Args1<Component> NICKNAME_SET = nickname -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.nicknameSet", "<gray>Your nickname has been set to: <white>%nick%<gray>."))
-      .replaceText(TextReplacementConfig.builder().matchLiteral("%nick%").replacement(nickname).build());
+  Args1<String> INVALID_CHARACTERS = args1("invalidCharacters",
+      "<red>Your nickname contains characters that aren't allowed: %characters%", "%characters%",
+      Component::text);
 
-  Args2<Player, Component> NICKNAME_SET_OTHER = (player, nickname) -> MiniMessage.get().parse(Nicks.core()
-      .getConfig().getString("messages.nicknameSetOther", "<aqua>%player%<gray>'s "
-          + "nickname has been set to: <white>%nick%<gray>."))
-      .replaceText(TextReplacementConfig.builder().matchLiteral("%player%").replacement(player.getName()).build())
-      .replaceText(TextReplacementConfig.builder().matchLiteral("%nick%").replacement(nickname).build());
+  Args0 NICKNAME_NOT_ALLOWED = args0("nicknameNotAllowed", "<red>That nickname isn't allowed.");
 
-  Args0 NICKNAME_REMOVED = () -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.nicknameRemoved", "<gray>Nickname removed."));
+  Args0 NICKNAME_RESERVED = args0("nicknameReserved", "<red>That nickname is reserved.");
 
-  Args1<Player> NICKNAME_REMOVED_OTHER = target -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.nicknameRemovedOther", "<aqua>%player%<gray>'s nickname removed."))
-      .replaceText(TextReplacementConfig.builder().matchLiteral("%player%").replacement(target.getName()).build());
+  Args0 NICKNAME_TAKEN = args0("nicknameTaken", "<red>That nickname is already taken.");
 
-  Args0 ONLY_COLOR_CODES = () -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.onlyColorCodes", "<red>You may only include color codes."));
+  Args1<String> NICKNAME_IMPERSONATION = args1("nicknameImpersonation",
+      "<red>That nickname looks too much like %player%.", "%player%", Component::text);
 
-  Args0 PLUGIN_RELOADED = () -> MiniMessage.get().parse(Nicks.core().getConfig()
-      .getString("messages.pluginReloaded", "<green>Plugin reloaded."));
+  Args1<Component> NICKNAME_SET = args1("nicknameSet",
+      "<gray>Your nickname has been set to: <white>%nick%<gray>.", "%nick%", nickname -> nickname);
+
+  Args2<Player, Component> NICKNAME_SET_OTHER = args2("nicknameSetOther", "<aqua>%player%<gray>'s "
+      + "nickname has been set to: <white>%nick%<gray>.", "%player%", player ->
+      Component.text(player.getName()), "%nick%", nickname -> nickname);
+
+  Args0 NICKNAME_REMOVED = args0("nicknameRemoved", "<gray>Nickname removed.");
+
+  Args1<Player> NICKNAME_REMOVED_OTHER = args1("nicknameRemovedOther",
+      "<aqua>%player%<gray>'s nickname removed.", "%player%", target ->
+      Component.text(target.getName()));
+
+  Args2<Component, String> REAL_NAME = args2("realName",
+      "<white>%nick%<gray> is <aqua>%player%<gray>.", "%nick%", nickname -> nickname,
+      "%player%", Component::text);
+
+  Args1<String> UNKNOWN_NICKNAME = args1("unknownNickname",
+      "<red>No player has the nickname %nick%.", "%nick%", Component::text);
+
+  Args0 ONLY_COLOR_CODES = args0("onlyColorCodes", "<red>You may only include color codes.");
+
+  Args1<Long> RATE_LIMITED = args1("rateLimited", "<red>You're changing your nickname too "
+      + "quickly. Try again in %seconds% seconds.", "%seconds%", Component::text);
+
+  Args0 PLUGIN_RELOADED = args0("pluginReloaded", "<green>Plugin reloaded.");
+
+  private static Args0 args0(String key, String defaultValue) {
+    Message message = new Message(key, defaultValue);
+    return audience -> Nicks.config().MESSAGES.render(message, audience);
+  }
+
+  private static <A0> Args1<A0> args1(String key, String defaultValue,
+                                      String slot0, Function<A0, ComponentLike> arg0) {
+    Message message = new Message(key, defaultValue, slot0);
+    return (audience, a0) -> Nicks.config().MESSAGES.render(message, audience, arg0.apply(a0));
+  }
+
+  private static <A0, A1> Args2<A0, A1> args2(String key, String defaultValue,
+                                              String slot0, Function<A0, ComponentLike> arg0,
+                                              String slot1, Function<A1, ComponentLike> arg1) {
+    Message message = new Message(key, defaultValue, slot0, slot1);
+    return (audience, a0, a1) -> Nicks.config().MESSAGES.render(message, audience,
+        arg0.apply(a0), arg1.apply(a1));
+  }
 
   /**
    * A message that has no arguments that need to be replaced.
    */
   interface Args0 {
-    Component build();
+    Component build(@Nullable Audience audience);
+
+    default Component build() {
+      return build(null);
+    }
 
     default void send(Audience audience) {
-      audience.sendMessage(build());
+      audience.sendMessage(build(audience));
     }
   }
 
@@ -97,10 +133,14 @@ public interface NicksMessages {
    * A message that has one argument that needs to be replaced.
    */
   interface Args1<A0> {
-    Component build(A0 arg0);
+    Component build(@Nullable Audience audience, A0 arg0);
+
+    default Component build(A0 arg0) {
+      return build(null, arg0);
+    }
 
     default void send(Audience audience, A0 arg0) {
-      audience.sendMessage(build(arg0));
+      audience.sendMessage(build(audience, arg0));
     }
   }
 
@@ -108,10 +148,14 @@ public interface NicksMessages {
    * A message that has two arguments that need to be replaced.
    */
   interface Args2<A0, A1> {
-    Component build(A0 arg0, A1 arg1);
+    Component build(@Nullable Audience audience, A0 arg0, A1 arg1);
+
+    default Component build(A0 arg0, A1 arg1) {
+      return build(null, arg0, arg1);
+    }
 
     default void send(Audience audience, A0 arg0, A1 arg1) {
-      audience.sendMessage(build(arg0, arg1));
+      audience.sendMessage(build(audience, arg0, arg1));
     }
   }
-}
\ No newline at end of file
+}
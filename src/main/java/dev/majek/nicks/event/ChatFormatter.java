@@ -25,15 +25,27 @@
 package dev.majek.nicks.event;
 
 import dev.majek.nicks.Nicks;
+import dev.majek.nicks.config.ChatFormat;
+import io.papermc.paper.chat.ChatRenderer;
 import io.papermc.paper.event.player.AsyncChatEvent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.sound.Sound;
+import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 
 /**
- * Handles formatting nicknames in chat.
+ * Handles formatting nicknames in chat and highlighting mentions.
  */
 public class ChatFormatter implements Listener {
 
@@ -44,12 +56,95 @@ public class ChatFormatter implements Listener {
    */
   @EventHandler(priority = EventPriority.LOWEST)
   public void onChat(AsyncChatEvent event) {
-    if (Nicks.config().CHAT_FORMATTER) {
-      event.renderer((source, sourceDisplayName, message, viewer) -> MiniMessage.get()
+    if (!Nicks.config().CHAT_FORMATTER) {
+      return;
+    }
+    ChatRenderer renderer;
+    ChatRenderer uncached = null;
+    if (Nicks.config().PRECOMPILE_CHAT_FORMAT) {
+      // Format was parsed on reload, only the placeholders need filling in
+      ChatFormat format = Nicks.config().CHAT_FORMATS.forPlayer(event.getPlayer());
+      if (format.isViewerDependent()) {
+        renderer = format::render;
+      } else {
+        // Paper asks once per viewer, but every viewer would get the same component
+        ChatRenderer.ViewerUnaware unaware = (source, sourceDisplayName, message) ->
+            format.render(source, sourceDisplayName, message, null);
+        renderer = ChatRenderer.viewerUnaware(unaware);
+        uncached = (source, sourceDisplayName, message, viewer) ->
+            format.render(source, sourceDisplayName, message, null);
+      }
+    } else {
+      renderer = (source, sourceDisplayName, message, viewer) -> MiniMessage.get()
           .parse(Nicks.config().CHAT_FORMAT).replaceText(TextReplacementConfig.builder()
               .matchLiteral("{displayname}").replacement(sourceDisplayName).build())
           .replaceText(TextReplacementConfig.builder().matchLiteral("{message}")
-              .replacement(message).build()));
+              .replacement(message).build());
+    }
+    if (Nicks.config().MENTIONS) {
+      renderer = withMentions(event, renderer, uncached == null ? renderer : uncached);
+    }
+    event.renderer(renderer);
+  }
+
+  /**
+   * Fires once other plugins have had their say, pings the players mentioned in a message that
+   * is actually being sent to them.
+   *
+   * @param event AsyncChatEvent.
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onChatSent(AsyncChatEvent event) {
+    Sound sound = Nicks.config().MENTION_SOUND;
+    if (!Nicks.config().CHAT_FORMATTER || !Nicks.config().MENTIONS || sound == null) {
+      return;
+    }
+    Map<UUID, Set<String>> mentions = findMentions(event);
+    if (mentions.isEmpty()) {
+      return;
+    }
+    for (Audience viewer : event.viewers()) {
+      if (viewer instanceof Player player && mentions.containsKey(player.getUniqueId())) {
+        player.playSound(sound);
+      }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Highlight mentions for the players they mention. Mentioned players get their own render
+   * from the uncached renderer, everyone else still gets the shared one.
+   */
+  private ChatRenderer withMentions(AsyncChatEvent event, ChatRenderer renderer,
+                                    ChatRenderer uncached) {
+    Map<UUID, Set<String>> mentions = findMentions(event);
+    if (mentions.isEmpty()) {
+      return renderer;
+    }
+    Map<UUID, TextReplacementConfig> highlights = new HashMap<>();
+    for (UUID uuid : mentions.keySet()) {
+      // Compiled when the mention index was built, not per message
+      Pattern pattern = Nicks.core().getMentionIndex().pattern(uuid);
+      if (pattern != null) {
+        highlights.put(uuid, TextReplacementConfig.builder().match(pattern)
+            .replacement((match, builder) -> Nicks.config().MENTION_FORMAT
+                .render(builder.build())).build());
+      }
+    }
+    return (source, sourceDisplayName, message, viewer) -> {
+      TextReplacementConfig highlight = viewer instanceof Player player
+          ? highlights.get(player.getUniqueId()) : null;
+      if (highlight == null) {
+        return renderer.render(source, sourceDisplayName, message, viewer);
+      }
+      return uncached.render(source, sourceDisplayName, message.replaceText(highlight), viewer);
+    };
+  }
+
+  /**
+   * The players mentioned in a message and the names they were mentioned by.
+   */
+  private Map<UUID, Set<String>> findMentions(AsyncChatEvent event) {
+    return Nicks.core().getMentionIndex().find(event.getPlayer().getUniqueId(),
+        PlainTextComponentSerializer.plainText().serialize(event.message()));
+  }
+}
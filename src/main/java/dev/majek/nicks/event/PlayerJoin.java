@@ -25,7 +25,6 @@
 package dev.majek.nicks.event;
 
 import dev.majek.nicks.Nicks;
-import java.util.Objects;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -44,9 +43,11 @@ public class PlayerJoin implements Listener {
    */
   @EventHandler(priority = EventPriority.HIGHEST)
   public void onPlayerJoin(PlayerJoinEvent event) {
-    if (Nicks.core().hasNick(event.getPlayer().getUniqueId())) {
-      Nicks.core().setNick(event.getPlayer(), Objects.requireNonNull(Nicks.core()
-          .getNick(event.getPlayer().getUniqueId())));
+    if (Nicks.core().isLazyLoading()) {
+      Nicks.core().loadNick(event.getPlayer().getUniqueId());
     }
+    Nicks.core().applyNick(event.getPlayer());
+    Nicks.core().getMentionIndex().add(event.getPlayer());
+    Nicks.core().getCompletionIndex().add(event.getPlayer());
   }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.event;
+
+import dev.majek.nicks.Nicks;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+/**
+ * <p>Handles the async player pre-login event.</p>
+ * <p>Remembers the player's username for the checks on real names and, with lazy loading,
+ * reads the player's nickname from storage before they join so the join itself never waits on
+ * storage.</p>
+ */
+public class PlayerPreLogin implements Listener {
+
+  /**
+   * Fires on the async login thread before the player joins. Monitor priority so we only
+   * fetch for logins that no other plugin has denied.
+   *
+   * @param event The event.
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+    if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+      return;
+    }
+    Nicks.core().addKnownName(event.getUniqueId(), event.getName());
+    if (Nicks.core().isLazyLoading()) {
+      Nicks.core().prefetchNick(event.getUniqueId());
+    }
+  }
+}
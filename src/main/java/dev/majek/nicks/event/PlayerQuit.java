@@ -0,0 +1,66 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.event;
+
+import dev.majek.nicks.Nicks;
+import java.util.UUID;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * <p>Handles the player quit event.</p>
+ * <p>Forgets the player's chat format, cached placeholder values, mentionable and completable
+ * names and, if it has refilled, their rate limit and, with lazy loading, unloads the player's
+ * nickname some time after they leave.</p>
+ */
+public class PlayerQuit implements Listener {
+
+  /**
+   * Fires when the player quits.
+   *
+   * @param event The event.
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerQuit(PlayerQuitEvent event) {
+    UUID uuid = event.getPlayer().getUniqueId();
+    Nicks.config().CHAT_FORMATS.invalidate(uuid);
+    Nicks.placeholders().invalidate(uuid);
+    Nicks.core().getMentionIndex().remove(uuid);
+    Nicks.core().getCompletionIndex().remove(uuid);
+    Nicks.core().getRateLimiter().trim(uuid);
+    if (!Nicks.core().isLazyLoading()) {
+      return;
+    }
+    Bukkit.getScheduler().runTaskLater(Nicks.core(), () -> {
+      // Skip if they came back in the meantime
+      if (Bukkit.getPlayer(uuid) == null) {
+        Nicks.core().unloadNick(uuid);
+      }
+    }, Math.max(0, Nicks.config().EVICT_AFTER) * 20L);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.event;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import dev.majek.nicks.Nicks;
+import java.util.List;
+import java.util.Locale;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+
+/**
+ * <p>Handles tab completion of player arguments off the main thread.</p>
+ * <p>Completes the first argument of <code>/nickother</code> and <code>/nonick</code> with online
+ * players' usernames and nicknames, and of <code>/realname</code> with their nicknames. Other
+ * commands and arguments are left to the regular tab completers.</p>
+ */
+public class TabComplete implements Listener {
+
+  /**
+   * Fires when a player or the console presses tab, on an async thread.
+   *
+   * @param event The event.
+   */
+  @EventHandler(ignoreCancelled = true)
+  public void onTabComplete(AsyncTabCompleteEvent event) {
+    if (event.isHandled() || !event.isCommand()) {
+      return;
+    }
+    String buffer = event.getBuffer();
+    int space = buffer.indexOf(' ');
+    // Only the first argument is a player
+    if (space < 0 || buffer.indexOf(' ', space + 1) >= 0) {
+      return;
+    }
+    String label = buffer.substring(buffer.startsWith("/") ? 1 : 0, space)
+        .toLowerCase(Locale.ROOT);
+    if (label.startsWith("papernicks:")) {
+      label = label.substring("papernicks:".length());
+    }
+    String prefix = buffer.substring(space + 1);
+    List<String> completions = switch (label) {
+      case "nickother" -> event.getSender().hasPermission("papernicks.nick.other")
+          ? Nicks.core().getCompletionIndex().names(prefix) : null;
+      case "nonick" -> event.getSender().hasPermission("papernicks.nonick.other")
+          ? Nicks.core().getCompletionIndex().names(prefix) : null;
+      case "realname" -> event.getSender().hasPermission("papernicks.realname")
+          ? Nicks.core().getCompletionIndex().nicks(prefix) : null;
+      default -> null;
+    };
+    if (completions != null) {
+      event.setCompletions(completions);
+      event.setHandled(true);
+    }
+  }
+}
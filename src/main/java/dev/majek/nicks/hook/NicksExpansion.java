@@ -0,0 +1,84 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.hook;
+
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.util.NickStrings;
+import java.util.Locale;
+import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Provides nickname placeholders to other plugins through PlaceholderAPI.</p>
+ * <ul>
+ *   <li><code>%papernicks_nick%</code> - The nickname in MiniMessage format.</li>
+ *   <li><code>%papernicks_nick_plain%</code> - The nickname without formatting.</li>
+ *   <li><code>%papernicks_nick_legacy%</code> - The nickname with legacy color codes.</li>
+ * </ul>
+ * <p>Players without a nickname get their username. Values are read from strings serialized when
+ * the nickname was set, so requests are safe and cheap from any thread. With lazy loading, the
+ * first request for a player who isn't loaded gets their username while their nickname is read
+ * in the background.</p>
+ */
+public class NicksExpansion extends PlaceholderExpansion {
+
+  @Override
+  public @NotNull String getIdentifier() {
+    return "papernicks";
+  }
+
+  @Override
+  public @NotNull String getAuthor() {
+    return "Majekdor";
+  }
+
+  @Override
+  public @NotNull String getVersion() {
+    return Nicks.core().getDescription().getVersion();
+  }
+
+  @Override
+  public boolean persist() {
+    // Stay registered when PlaceholderAPI reloads
+    return true;
+  }
+
+  @Override
+  public @Nullable String onRequest(@Nullable OfflinePlayer player, @NotNull String params) {
+    if (player == null) {
+      return "";
+    }
+    NickStrings strings = Nicks.core().getNickStrings(player.getUniqueId());
+    String name = player.getName() == null ? "" : player.getName();
+    return switch (params.toLowerCase(Locale.ROOT)) {
+      case "nick" -> strings == null ? name : strings.miniMessage();
+      case "nick_plain" -> strings == null ? name : strings.plain();
+      case "nick_legacy" -> strings == null ? name : strings.legacy();
+      default -> null;
+    };
+  }
+}
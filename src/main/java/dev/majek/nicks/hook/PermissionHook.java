@@ -0,0 +1,62 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.hook;
+
+import dev.majek.nicks.Nicks;
+import org.bukkit.Bukkit;
+
+/**
+ * <p>Finds out when players' permissions change, so checks depending on them can be cached
+ * until then.</p>
+ * <p>Bukkit has no event for permission changes, so this only works with LuckPerms installed.
+ * Without it, cached checks have to be repeated every so often instead.</p>
+ */
+public class PermissionHook {
+
+  private volatile boolean tracking;
+
+  /**
+   * Start listening for permission changes, if LuckPerms is installed. LuckPerms keeps the
+   * subscription until the plugin is disabled, so this is only called on startup.
+   */
+  public void register() {
+    if (!Bukkit.getPluginManager().isPluginEnabled("LuckPerms")) {
+      return;
+    }
+    LuckPermsHook.subscribe(Nicks.core(), uuid -> Nicks.config().CHAT_FORMATS.invalidate(uuid));
+    tracking = true;
+    Nicks.log("Hooked into LuckPerms.");
+  }
+
+  /**
+   * Whether permission changes are being tracked. If they are, anything depending on a
+   * player's permissions is invalidated as soon as they change.
+   *
+   * @return True if LuckPerms is installed.
+   */
+  public boolean isTracking() {
+    return tracking;
+  }
+}
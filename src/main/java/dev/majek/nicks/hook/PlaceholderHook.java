@@ -0,0 +1,171 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.hook;
+
+import dev.majek.nicks.Nicks;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Resolves PlaceholderAPI placeholders such as <code>%vault_eco_balance%</code>.</p>
+ * <p>Resolved values are cached per player for a configurable time, so expensive placeholders
+ * aren't resolved again for every chat line. Relational placeholders depend on two players and
+ * are never cached. If PlaceholderAPI isn't installed, placeholders are left as they are.</p>
+ */
+public class PlaceholderHook {
+
+  private static final Pattern PLACEHOLDER = Pattern.compile("%[^%\\s]+%");
+
+  private final Map<UUID, Map<String, Resolved>> cache;
+  private volatile boolean enabled;
+
+  public PlaceholderHook() {
+    this.cache = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Check whether PlaceholderAPI is installed and forget all cached values.
+   */
+  public void reload() {
+    enabled = Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI");
+    cache.clear();
+    if (enabled) {
+      Nicks.log("Hooked into PlaceholderAPI.");
+    }
+  }
+
+  /**
+   * Register the papernicks placeholders with PlaceholderAPI, if it's installed.
+   * The expansion persists across PlaceholderAPI reloads so this is only called on startup.
+   */
+  public void registerExpansion() {
+    if (enabled) {
+      PapiHook.registerExpansion();
+    }
+  }
+
+  /**
+   * Whether PlaceholderAPI is installed.
+   *
+   * @return True if placeholders will be resolved.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Find the distinct placeholders in a string, in the order they first appear.
+   *
+   * @param text The text to search.
+   * @return Placeholders including their percent signs.
+   */
+  public static @NotNull List<String> find(@NotNull String text) {
+    List<String> placeholders = new ArrayList<>();
+    Matcher matcher = PLACEHOLDER.matcher(text);
+    while (matcher.find()) {
+      if (!placeholders.contains(matcher.group())) {
+        placeholders.add(matcher.group());
+      }
+    }
+    return placeholders;
+  }
+
+  /**
+   * Whether a placeholder depends on the player viewing it as well as the player it's about.
+   *
+   * @param placeholder The placeholder including its percent signs.
+   * @return True for relational placeholders.
+   */
+  public static boolean isRelational(@NotNull String placeholder) {
+    return placeholder.startsWith("%rel_");
+  }
+
+  /**
+   * Resolve a placeholder for a player, using the cached value if it hasn't expired.
+   * Relational placeholders are resolved between the player and the viewer.
+   *
+   * @param player      The player the placeholder is about.
+   * @param viewer      The player viewing the placeholder, only used for relational placeholders.
+   * @param placeholder The placeholder including its percent signs.
+   * @return The resolved value, or the placeholder itself if PlaceholderAPI isn't installed.
+   */
+  public @NotNull Component resolve(@NotNull Player player, @Nullable Player viewer,
+                                    @NotNull String placeholder) {
+    if (!enabled) {
+      return Component.text(placeholder);
+    }
+    if (isRelational(placeholder)) {
+      return viewer == null ? Component.empty() : timed(player, placeholder,
+          () -> PapiHook.setRelationalPlaceholders(player, viewer, placeholder));
+    }
+    long now = System.currentTimeMillis();
+    Map<String, Resolved> values = cache.computeIfAbsent(player.getUniqueId(),
+        uuid -> new ConcurrentHashMap<>());
+    Resolved resolved = values.get(placeholder);
+    if (resolved == null || now >= resolved.expires()) {
+      Component value = timed(player, placeholder,
+          () -> PapiHook.setPlaceholders(player, placeholder));
+      resolved = new Resolved(value, now + Nicks.config().PLACEHOLDER_CACHE * 1000L);
+      values.put(placeholder, resolved);
+    }
+    return resolved.value();
+  }
+
+  /**
+   * Forget the cached values for a player, for example when they leave.
+   *
+   * @param uuid The player's unique id.
+   */
+  public void invalidate(@NotNull UUID uuid) {
+    cache.remove(uuid);
+  }
+
+  /**
+   * Resolve a value, reporting how long it took when debugging.
+   */
+  private Component timed(Player player, String placeholder, Supplier<String> resolver) {
+    long start = System.nanoTime();
+    String value = resolver.get();
+    if (Nicks.config().DEBUG) {
+      Nicks.debug(String.format("Resolved %s for %s in %.3f ms.", placeholder, player.getName(),
+          (System.nanoTime() - start) / 1_000_000D));
+    }
+    return Nicks.utils().fromLegacy(value);
+  }
+
+  private record Resolved(Component value, long expires) {
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.storage;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.config.JsonConfig;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Stores nicknames as a Json snapshot plus an append-only journal of changes.</p>
+ * <p>Every write appends one line per change to the journal, so the cost of a write does
+ * not depend on how many nicknames are stored. A background task periodically folds the
+ * journal into the snapshot and starts a fresh journal. Loading reads the snapshot and
+ * then replays the journal on top of it.</p>
+ * <p>The serialized nicknames are also kept in memory, so reading a single nickname is a map
+ * lookup instead of a parse of the snapshot and the journal.</p>
+ */
+public class JournalNickStorage implements NickStorage {
+
+  private static final String SET = "S";
+  private static final String REMOVE = "R";
+
+  private final JsonConfig  snapshot;
+  private final File        journalFile;
+  private final File        compactingFile;
+  private final Object      appendLock;
+  private final Object      compactLock;
+  private final Map<UUID, String> index;
+  private FileOutputStream  journalOut;
+  private Writer            journal;
+  private BukkitTask        compactTask;
+
+  /**
+   * Create journal storage in the given folder.
+   *
+   * @param dataFolder   The plugin's data folder.
+   * @param snapshotName The name of the Json snapshot file.
+   * @param journalName  The name of the journal file.
+   */
+  public JournalNickStorage(@NotNull File dataFolder, @NotNull String snapshotName,
+                            @NotNull String journalName) {
+    this.snapshot = new JsonConfig(dataFolder, snapshotName);
+    this.journalFile = new File(dataFolder, journalName);
+    this.compactingFile = new File(dataFolder, journalName + ".compacting");
+    this.appendLock = new Object();
+    this.compactLock = new Object();
+    this.index = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void load() throws IOException {
+    if (snapshot.recover()) {
+      Nicks.error(snapshot.getName() + " was missing or corrupt, restored it from the last good "
+          + "backup.");
+    }
+    snapshot.createConfig();
+    // A compaction was interrupted last time, finish it before anything else is written
+    synchronized (compactLock) {
+      if (compactingFile.exists()) {
+        fold(compactingFile);
+      }
+    }
+    synchronized (appendLock) {
+      journal = openJournal();
+    }
+    readEntries().forEach((key, value) -> {
+      if (value != null) {
+        index.put(UUID.fromString(key), value.toString());
+      }
+    });
+    long interval = Math.max(1, Nicks.config().COMPACT_INTERVAL) * 20L;
+    compactTask = Bukkit.getScheduler().runTaskTimerAsynchronously(Nicks.core(), () -> {
+      try {
+        compact();
+      } catch (IOException e) {
+        Nicks.error("Error compacting nickname journal:");
+        e.printStackTrace();
+      }
+    }, interval, interval);
+  }
+
+  @Override
+  public @NotNull Map<UUID, Component> loadAll() {
+    Map<UUID, Component> nicks = new HashMap<>();
+    index.forEach((uuid, json) -> nicks.put(uuid, GsonComponentSerializer.gson()
+        .deserialize(json)));
+    return nicks;
+  }
+
+  @Override
+  public @Nullable Component get(@NotNull UUID uuid) {
+    String json = index.get(uuid);
+    return json == null ? null : GsonComponentSerializer.gson().deserialize(json);
+  }
+
+  @Override
+  public void put(@NotNull UUID uuid, @NotNull Component nick) throws IOException {
+    write(Collections.singletonMap(uuid, nick), Collections.emptyList());
+  }
+
+  @Override
+  public void remove(@NotNull UUID uuid) throws IOException {
+    write(Collections.emptyMap(), Collections.singletonList(uuid));
+  }
+
+  @Override
+  public void write(@NotNull Map<UUID, Component> puts, @NotNull Collection<UUID> removals)
+      throws IOException {
+    Map<UUID, String> serialized = new HashMap<>();
+    StringBuilder records = new StringBuilder();
+    puts.forEach((uuid, nick) -> {
+      String json = GsonComponentSerializer.gson().serialize(nick);
+      serialized.put(uuid, json);
+      records.append(SET).append('\t').append(uuid).append('\t').append(json).append('\n');
+    });
+    removals.forEach(uuid -> records.append(REMOVE).append('\t').append(uuid).append('\n'));
+    synchronized (appendLock) {
+      journal.write(records.toString());
+      journal.flush();
+      journalOut.getFD().sync();
+      // Only once the records are on disk
+      index.putAll(serialized);
+      removals.forEach(index::remove);
+    }
+  }
+
+  /**
+   * Fold the current journal into the snapshot and start a new, empty journal.
+   * Writes may continue while the snapshot is being rewritten.
+   *
+   * @throws IOException if the journal or snapshot cannot be read or written.
+   */
+  public void compact() throws IOException {
+    synchronized (compactLock) {
+      // Retry a compaction that failed earlier so its records aren't overwritten
+      if (compactingFile.exists()) {
+        fold(compactingFile);
+      }
+      synchronized (appendLock) {
+        journal.flush();
+        if (journalFile.length() == 0) {
+          return;
+        }
+        journal.close();
+        Files.move(journalFile.toPath(), compactingFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE);
+        journal = openJournal();
+      }
+      fold(compactingFile);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (compactTask != null) {
+      compactTask.cancel();
+      compactTask = null;
+    }
+    compact();
+    synchronized (appendLock) {
+      journal.close();
+    }
+  }
+
+  /**
+   * Read the snapshot with the journal replayed on top. Removed keys are mapped to null.
+   */
+  private Map<String, JsonElement> readEntries() throws IOException {
+    Map<String, JsonElement> entries = new HashMap<>();
+    synchronized (compactLock) {
+      JsonObject jsonObject = snapshot.toJsonObject();
+      for (String key : jsonObject.keySet()) {
+        entries.put(key, jsonObject.get(key));
+      }
+      synchronized (appendLock) {
+        journal.flush();
+        replay(journalFile, entries);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Apply a journal file to the snapshot, then delete the journal file.
+   */
+  private void fold(File file) throws IOException {
+    Map<String, JsonElement> changes = new HashMap<>();
+    int records = replay(file, changes);
+    Map<String, JsonElement> puts = new HashMap<>();
+    List<String> removals = new ArrayList<>();
+    changes.forEach((key, value) -> {
+      if (value == null) {
+        removals.add(key);
+      } else {
+        puts.put(key, value);
+      }
+    });
+    snapshot.applyChanges(puts, removals);
+    Files.delete(file.toPath());
+    Nicks.debug("Compacted " + records + " journal records into " + snapshot.getName() + ".");
+  }
+
+  /**
+   * Replay the records in a journal file in order. Removed keys are mapped to null.
+   *
+   * @return The number of records replayed.
+   */
+  private int replay(File file, Map<String, JsonElement> entries) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    int records = 0;
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] record = line.split("\t", 3);
+        try {
+          if (record[0].equals(SET) && record.length == 3) {
+            entries.put(UUID.fromString(record[1]).toString(), JsonParser.parseString(record[2]));
+          } else if (record[0].equals(REMOVE) && record.length == 2) {
+            entries.put(UUID.fromString(record[1]).toString(), null);
+          } else {
+            throw new IllegalArgumentException("Unknown record");
+          }
+          records++;
+        } catch (IllegalArgumentException | JsonParseException e) {
+          // Most likely a partial line left by a crash in the middle of an append
+          Nicks.error("Skipping malformed record in " + file.getName() + ": " + line);
+        }
+      }
+    }
+    return records;
+  }
+
+  private Writer openJournal() throws IOException {
+    journalOut = new FileOutputStream(journalFile, true);
+    return new BufferedWriter(new OutputStreamWriter(journalOut, StandardCharsets.UTF_8));
+  }
+}
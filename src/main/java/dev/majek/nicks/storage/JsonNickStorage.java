@@ -0,0 +1,113 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.storage;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.config.JsonConfig;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores every nickname in a single Json document. Each write rewrites the whole file
+ * and each read parses the whole file.
+ */
+public class JsonNickStorage implements NickStorage {
+
+  private final JsonConfig json;
+
+  /**
+   * Create storage backed by a Json file in the given folder.
+   *
+   * @param dataFolder The plugin's data folder.
+   * @param fileName   The name of the Json file.
+   */
+  public JsonNickStorage(@NotNull File dataFolder, @NotNull String fileName) {
+    this.json = new JsonConfig(dataFolder, fileName);
+  }
+
+  @Override
+  public void load() throws IOException {
+    if (json.recover()) {
+      Nicks.error(json.getName() + " was missing or corrupt, restored it from the last good backup.");
+    }
+    json.createConfig();
+  }
+
+  @Override
+  public @NotNull Map<UUID, Component> loadAll() throws IOException {
+    Map<UUID, Component> nicks = new HashMap<>();
+    JsonObject jsonObject = json.toJsonObject();
+    for (String key : jsonObject.keySet()) {
+      nicks.put(UUID.fromString(key), GsonComponentSerializer.gson()
+          .deserializeFromTree(jsonObject.get(key)));
+    }
+    return nicks;
+  }
+
+  @Override
+  public @Nullable Component get(@NotNull UUID uuid) throws IOException {
+    JsonElement element = json.toJsonObject().get(uuid.toString());
+    return element == null ? null : GsonComponentSerializer.gson().deserializeFromTree(element);
+  }
+
+  @Override
+  public void put(@NotNull UUID uuid, @NotNull Component nick) throws IOException {
+    write(Collections.singletonMap(uuid, nick), Collections.emptyList());
+  }
+
+  @Override
+  public void remove(@NotNull UUID uuid) throws IOException {
+    write(Collections.emptyMap(), Collections.singletonList(uuid));
+  }
+
+  @Override
+  public void write(@NotNull Map<UUID, Component> puts, @NotNull Collection<UUID> removals)
+      throws IOException {
+    Map<String, JsonElement> jsonPuts = new HashMap<>();
+    puts.forEach((uuid, nick) -> jsonPuts.put(uuid.toString(),
+        GsonComponentSerializer.gson().serializeToTree(nick)));
+    List<String> jsonRemovals = new ArrayList<>();
+    removals.forEach(uuid -> jsonRemovals.add(uuid.toString()));
+    json.applyChanges(jsonPuts, jsonRemovals);
+  }
+
+  @Override
+  public void close() {
+    // Nothing is held open between writes
+  }
+}
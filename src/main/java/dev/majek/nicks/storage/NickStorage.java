@@ -0,0 +1,102 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.storage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A place nicknames are persisted to. Implementations must be safe to call from
+ * asynchronous tasks, since writes happen off the main thread.
+ *
+ * @see JsonNickStorage
+ * @see JournalNickStorage
+ * @see SqliteNickStorage
+ */
+public interface NickStorage {
+
+  /**
+   * Prepare the storage for use, creating any files that do not exist yet.
+   *
+   * @throws IOException if the storage cannot be opened.
+   */
+  void load() throws IOException;
+
+  /**
+   * Read every stored nickname.
+   *
+   * @return Unique ids keyed to nicknames.
+   * @throws IOException if the storage cannot be read.
+   */
+  @NotNull Map<UUID, Component> loadAll() throws IOException;
+
+  /**
+   * Read a single stored nickname.
+   *
+   * @param uuid The unique id.
+   * @return The nickname, or null if there is none stored.
+   * @throws IOException if the storage cannot be read.
+   */
+  @Nullable Component get(@NotNull UUID uuid) throws IOException;
+
+  /**
+   * Store a single nickname, replacing any existing one.
+   *
+   * @param uuid The unique id.
+   * @param nick The nickname.
+   * @throws IOException if the storage cannot be written.
+   */
+  void put(@NotNull UUID uuid, @NotNull Component nick) throws IOException;
+
+  /**
+   * Remove a single stored nickname.
+   *
+   * @param uuid The unique id.
+   * @throws IOException if the storage cannot be written.
+   */
+  void remove(@NotNull UUID uuid) throws IOException;
+
+  /**
+   * Write a batch of changes.
+   *
+   * @param puts     Nicknames to add or replace.
+   * @param removals Unique ids whose nicknames should be removed.
+   * @throws IOException if the storage cannot be written.
+   */
+  void write(@NotNull Map<UUID, Component> puts, @NotNull Collection<UUID> removals)
+      throws IOException;
+
+  /**
+   * Release any resources held by the storage. Called after the final write on shutdown.
+   *
+   * @throws IOException if the storage cannot be closed cleanly.
+   */
+  void close() throws IOException;
+}
@@ -0,0 +1,220 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.storage;
+
+import dev.majek.nicks.Nicks;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Write-behind queue in front of nickname storage.</p>
+ * <p>Changes are recorded per unique id, so repeated changes to the same player coalesce
+ * into one entry, and are written to storage in batches either on a fixed interval or as
+ * soon as enough changes are pending. The main thread never waits for a write.</p>
+ */
+public class SaveQueue {
+
+  private final NickStorage              storage;
+  private final Map<UUID, Change>        pending;
+  private final AtomicBoolean            earlyFlushScheduled;
+  private final Object                   flushLock;
+  private BukkitTask                     flushTask;
+
+  /**
+   * Create a new queue writing to the given storage. Call {@link #start()} to begin flushing.
+   *
+   * @param storage The storage to write to.
+   */
+  public SaveQueue(@NotNull NickStorage storage) {
+    this.storage = storage;
+    this.pending = new ConcurrentHashMap<>();
+    this.earlyFlushScheduled = new AtomicBoolean(false);
+    this.flushLock = new Object();
+  }
+
+  /**
+   * (Re)start the repeating flush task using the current config values.
+   */
+  public void start() {
+    if (flushTask != null) {
+      flushTask.cancel();
+    }
+    long interval = Math.max(1, Nicks.config().FLUSH_INTERVAL) * 20L;
+    flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(Nicks.core(), this::flush,
+        interval, interval);
+  }
+
+  /**
+   * Stop the flush task and write everything that is still pending.
+   * This runs on the calling thread.
+   */
+  public void shutdown() {
+    if (flushTask != null) {
+      flushTask.cancel();
+      flushTask = null;
+    }
+    flush();
+  }
+
+  /**
+   * Queue a nickname to be saved. Replaces any change still pending for the unique id.
+   *
+   * @param uuid The unique id.
+   * @param nick The nickname to save.
+   */
+  public void enqueueSave(@NotNull UUID uuid, @NotNull Component nick) {
+    enqueue(uuid, new Change(nick));
+  }
+
+  /**
+   * Queue a nickname to be removed. Replaces any change still pending for the unique id.
+   *
+   * @param uuid The unique id.
+   */
+  public void enqueueRemoval(@NotNull UUID uuid) {
+    enqueue(uuid, new Change(null));
+  }
+
+  /**
+   * Get the number of unique ids with changes that have not been written yet.
+   *
+   * @return Pending change count.
+   */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Get the change still waiting to be written for a unique id.
+   *
+   * @param uuid The unique id.
+   * @return The pending change, or null if storage is up to date for the unique id.
+   */
+  public @Nullable Change pending(@NotNull UUID uuid) {
+    return pending.get(uuid);
+  }
+
+  private void enqueue(UUID uuid, Change change) {
+    pending.put(uuid, change);
+    int size = pending.size();
+    if (size >= Nicks.config().QUEUE_DEPTH && !Bukkit.isPrimaryThread()) {
+      // The queue is full, make async callers wait for the write instead of growing further
+      Nicks.debug("Save queue reached its maximum depth of " + size + ", flushing now.");
+      flush();
+    } else if (size >= Nicks.config().MAX_BATCH_SIZE) {
+      // The main thread never waits for storage, a full queue just starts writing right away
+      flushAsync();
+    }
+  }
+
+  /**
+   * Start a flush on another thread unless one is already waiting to start.
+   */
+  private void flushAsync() {
+    if (earlyFlushScheduled.compareAndSet(false, true)) {
+      Bukkit.getScheduler().runTaskAsynchronously(Nicks.core(), () -> {
+        earlyFlushScheduled.set(false);
+        flush();
+      });
+    }
+  }
+
+  /**
+   * Write all pending changes to storage in batches of at most <code>max-batch-size</code>.
+   * Changes stay in the queue until they are written, so lookups keep seeing them while the
+   * write is in progress, and are only removed if no newer change for the same unique id
+   * arrived meanwhile. Stops at the first batch that fails, leaving the rest queued.
+   */
+  public void flush() {
+    synchronized (flushLock) {
+      List<UUID> uuids = new ArrayList<>(pending.keySet());
+      int batchSize = Math.max(1, Nicks.config().MAX_BATCH_SIZE);
+      for (int from = 0; from < uuids.size(); from += batchSize) {
+        if (!writeBatch(uuids.subList(from, Math.min(uuids.size(), from + batchSize)))) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Write the pending changes of some unique ids in one batch.
+   *
+   * @return False if the batch could not be written.
+   */
+  private boolean writeBatch(List<UUID> uuids) {
+    Map<UUID, Change> batch = new HashMap<>();
+    for (UUID uuid : uuids) {
+      Change change = pending.get(uuid);
+      if (change != null) {
+        batch.put(uuid, change);
+      }
+    }
+    if (batch.isEmpty()) {
+      return true;
+    }
+
+    Map<UUID, Component> puts = new HashMap<>();
+    List<UUID> removals = new ArrayList<>();
+    batch.forEach((uuid, change) -> {
+      if (change.nick() == null) {
+        removals.add(uuid);
+      } else {
+        puts.put(uuid, change.nick());
+      }
+    });
+
+    try {
+      storage.write(puts, removals);
+      batch.forEach(pending::remove);
+      Nicks.debug("Saved " + puts.size() + " and removed " + removals.size()
+          + " nicknames in one batch.");
+      return true;
+    } catch (IOException e) {
+      Nicks.error("Error saving batch of " + batch.size() + " nickname changes to storage:");
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  /**
+   * A pending change. A null nickname means the nickname should be removed.
+   *
+   * @param nick The nickname to save, or null to remove it.
+   */
+  public record Change(@Nullable Component nick) {
+  }
+}
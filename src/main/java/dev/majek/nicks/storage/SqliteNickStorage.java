@@ -0,0 +1,211 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.storage;
+
+import dev.majek.nicks.Nicks;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Stores nicknames in an embedded SQLite database file, one row per player.</p>
+ * <p>Reads and writes only touch the rows involved and batches are written in a single
+ * transaction. The SQLite driver is bundled with the server, so no extra download is
+ * needed. If the database is empty on first load, nicknames are imported from the Json
+ * file used by the other backends.</p>
+ */
+public class SqliteNickStorage implements NickStorage {
+
+  private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS nicknames "
+      + "(uuid CHAR(36) PRIMARY KEY NOT NULL, nick TEXT NOT NULL)";
+  private static final String SELECT_ALL = "SELECT uuid, nick FROM nicknames";
+  private static final String SELECT_ONE = "SELECT nick FROM nicknames WHERE uuid = ?";
+  private static final String UPSERT = "INSERT OR REPLACE INTO nicknames (uuid, nick) VALUES (?, ?)";
+  private static final String DELETE = "DELETE FROM nicknames WHERE uuid = ?";
+  // Stored in the database's user version once nicknames.json has been imported
+  private static final int IMPORTED_VERSION = 1;
+
+  private final File        databaseFile;
+  private final File        importFile;
+  private Connection        connection;
+
+  /**
+   * Create SQLite storage in the given folder.
+   *
+   * @param dataFolder   The plugin's data folder.
+   * @param databaseName The name of the database file.
+   * @param importName   The name of the Json file to import from if the database is empty.
+   */
+  public SqliteNickStorage(@NotNull File dataFolder, @NotNull String databaseName,
+                           @NotNull String importName) {
+    this.databaseFile = new File(dataFolder, databaseName);
+    this.importFile = new File(dataFolder, importName);
+  }
+
+  @Override
+  public synchronized void load() throws IOException {
+    try {
+      Class.forName("org.sqlite.JDBC");
+      if (!databaseFile.getParentFile().exists() && !databaseFile.getParentFile().mkdirs()) {
+        throw new IOException("Unable to create " + databaseFile.getParent());
+      }
+      connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("PRAGMA journal_mode=WAL");
+        statement.execute("PRAGMA synchronous=NORMAL");
+        statement.execute(CREATE_TABLE);
+      }
+    } catch (ClassNotFoundException | SQLException e) {
+      throw new IOException("Unable to open " + databaseFile.getName(), e);
+    }
+    importJson();
+  }
+
+  @Override
+  public synchronized @NotNull Map<UUID, Component> loadAll() throws IOException {
+    Map<UUID, Component> nicks = new HashMap<>();
+    try (Statement statement = connection.createStatement();
+         ResultSet results = statement.executeQuery(SELECT_ALL)) {
+      while (results.next()) {
+        nicks.put(UUID.fromString(results.getString(1)),
+            GsonComponentSerializer.gson().deserialize(results.getString(2)));
+      }
+    } catch (SQLException e) {
+      throw new IOException("Unable to read nicknames from " + databaseFile.getName(), e);
+    }
+    return nicks;
+  }
+
+  @Override
+  public synchronized @Nullable Component get(@NotNull UUID uuid) throws IOException {
+    try (PreparedStatement statement = connection.prepareStatement(SELECT_ONE)) {
+      statement.setString(1, uuid.toString());
+      try (ResultSet results = statement.executeQuery()) {
+        return results.next() ? GsonComponentSerializer.gson().deserialize(results.getString(1))
+            : null;
+      }
+    } catch (SQLException e) {
+      throw new IOException("Unable to read nickname of " + uuid + " from "
+          + databaseFile.getName(), e);
+    }
+  }
+
+  @Override
+  public void put(@NotNull UUID uuid, @NotNull Component nick) throws IOException {
+    write(Collections.singletonMap(uuid, nick), Collections.emptyList());
+  }
+
+  @Override
+  public void remove(@NotNull UUID uuid) throws IOException {
+    write(Collections.emptyMap(), Collections.singletonList(uuid));
+  }
+
+  @Override
+  public synchronized void write(@NotNull Map<UUID, Component> puts,
+                                 @NotNull Collection<UUID> removals) throws IOException {
+    try {
+      connection.setAutoCommit(false);
+      try (PreparedStatement upsert = connection.prepareStatement(UPSERT);
+           PreparedStatement delete = connection.prepareStatement(DELETE)) {
+        for (Map.Entry<UUID, Component> entry : puts.entrySet()) {
+          upsert.setString(1, entry.getKey().toString());
+          upsert.setString(2, GsonComponentSerializer.gson().serialize(entry.getValue()));
+          upsert.addBatch();
+        }
+        for (UUID uuid : removals) {
+          delete.setString(1, uuid.toString());
+          delete.addBatch();
+        }
+        upsert.executeBatch();
+        delete.executeBatch();
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new IOException("Unable to write nicknames to " + databaseFile.getName(), e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (connection == null) {
+      return;
+    }
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      throw new IOException("Unable to close " + databaseFile.getName(), e);
+    }
+  }
+
+  /**
+   * Import nicknames from the Json file the first time the database is opened. The import is
+   * recorded in the database's user version so nicknames removed since aren't imported again.
+   * Databases that already have rows are taken as imported.
+   */
+  private void importJson() throws IOException {
+    try (Statement statement = connection.createStatement()) {
+      try (ResultSet results = statement.executeQuery("PRAGMA user_version")) {
+        if (results.next() && results.getInt(1) >= IMPORTED_VERSION) {
+          return;
+        }
+      }
+      boolean empty;
+      try (ResultSet results = statement.executeQuery("SELECT COUNT(*) FROM nicknames")) {
+        empty = !results.next() || results.getInt(1) == 0;
+      }
+      if (empty && importFile.exists()) {
+        Map<UUID, Component> nicks = new JsonNickStorage(importFile.getParentFile(),
+            importFile.getName()).loadAll();
+        if (!nicks.isEmpty()) {
+          write(nicks, Collections.emptyList());
+          Nicks.log("Imported " + nicks.size() + " nicknames from " + importFile.getName()
+              + " into " + databaseFile.getName() + ".");
+        }
+      }
+      statement.executeUpdate("PRAGMA user_version = " + IMPORTED_VERSION);
+    } catch (SQLException e) {
+      throw new IOException("Unable to import nicknames into " + databaseFile.getName(), e);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Finds every occurrence of many patterns in a single pass over a text, no matter how many
+ * patterns there are. Matching ignores case.</p>
+ * <p>Instances are immutable once built and safe to share between threads. To change the
+ * patterns, build a new instance and swap it in.</p>
+ *
+ * @param <T> The value attached to each pattern.
+ */
+public final class AhoCorasick<T> {
+
+  private final Node<T> root;
+
+  private AhoCorasick(Node<T> root) {
+    this.root = root;
+  }
+
+  /**
+   * Start building a new matcher.
+   *
+   * @param <T> The value attached to each pattern.
+   * @return Builder.
+   */
+  public static <T> @NotNull Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Whether this matcher has no patterns and will never match anything.
+   *
+   * @return True if empty.
+   */
+  public boolean isEmpty() {
+    return root.children.isEmpty();
+  }
+
+  /**
+   * Find every occurrence of every pattern in a text, including overlapping occurrences.
+   * Matches are ordered by where they end.
+   *
+   * @param text The text to search.
+   * @return All matches.
+   */
+  public @NotNull List<Match<T>> findAll(@NotNull CharSequence text) {
+    List<Match<T>> matches = new ArrayList<>();
+    Node<T> node = root;
+    for (int i = 0; i < text.length(); i++) {
+      char c = Character.toLowerCase(text.charAt(i));
+      while (node != root && !node.children.containsKey(c)) {
+        node = node.fail;
+      }
+      node = node.children.getOrDefault(c, root);
+      for (Node<T> out = node.values.isEmpty() ? node.dictionary : node; out != null;
+           out = out.dictionary) {
+        for (T value : out.values) {
+          matches.add(new Match<>(i + 1 - out.depth, i + 1, value));
+        }
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * An occurrence of a pattern.
+   *
+   * @param start Index of the first matched character.
+   * @param end   Index after the last matched character.
+   * @param value The value attached to the matched pattern.
+   * @param <T>   The value type.
+   */
+  public record Match<T>(int start, int end, T value) {
+  }
+
+  /**
+   * Collects patterns and builds the matcher.
+   *
+   * @param <T> The value attached to each pattern.
+   */
+  public static final class Builder<T> {
+
+    private final Node<T> root = new Node<>(0);
+
+    private Builder() {
+    }
+
+    /**
+     * Add a pattern. Empty patterns are ignored. The same pattern may be added several times
+     * with different values, every value is reported when it matches.
+     *
+     * @param pattern The text to find.
+     * @param value   The value reported when the pattern matches.
+     * @return This builder.
+     */
+    public @NotNull Builder<T> add(@NotNull CharSequence pattern, @NotNull T value) {
+      if (pattern.length() == 0) {
+        return this;
+      }
+      Node<T> node = root;
+      for (int i = 0; i < pattern.length(); i++) {
+        int depth = i + 1;
+        node = node.children.computeIfAbsent(Character.toLowerCase(pattern.charAt(i)),
+            c -> new Node<>(depth));
+      }
+      if (!node.values.contains(value)) {
+        node.values.add(value);
+      }
+      return this;
+    }
+
+    /**
+     * Link the added patterns into a matcher. The builder shouldn't be used afterwards.
+     *
+     * @return The matcher.
+     */
+    public @NotNull AhoCorasick<T> build() {
+      // Breadth first so every node's failure link is known before its children need it
+      Queue<Node<T>> queue = new ArrayDeque<>();
+      for (Node<T> child : root.children.values()) {
+        child.fail = root;
+        queue.add(child);
+      }
+      while (!queue.isEmpty()) {
+        Node<T> node = queue.remove();
+        for (Map.Entry<Character, Node<T>> entry : node.children.entrySet()) {
+          Node<T> child = entry.getValue();
+          Node<T> fail = node.fail;
+          while (fail != root && !fail.children.containsKey(entry.getKey())) {
+            fail = fail.fail;
+          }
+          Node<T> target = fail.children.get(entry.getKey());
+          child.fail = target != null && target != child ? target : root;
+          child.dictionary = child.fail.values.isEmpty() ? child.fail.dictionary : child.fail;
+          queue.add(child);
+        }
+      }
+      return new AhoCorasick<>(root);
+    }
+  }
+
+  private static final class Node<T> {
+
+    private final Map<Character, Node<T>> children = new HashMap<>();
+    private final List<T>                 values = new ArrayList<>(1);
+    private final int                     depth;
+    private Node<T>                       fail;
+    // Nearest node along the failure links that ends a pattern
+    private Node<T>                       dictionary;
+
+    private Node(int depth) {
+      this.depth = depth;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import dev.majek.nicks.Nicks;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Completes online players' usernames and plain nicknames for commands.</p>
+ * <p>The names are kept in a {@link PrefixTrie}. Joins, quits and nickname changes only add
+ * and remove that player's entries. Safe to use from async tab completion threads.</p>
+ */
+public class CompletionIndex {
+
+  private final Map<UUID, String>           online;
+  private final Map<UUID, List<Completion>> entries;
+  private final PrefixTrie<Completion>      trie;
+
+  public CompletionIndex() {
+    this.online = new HashMap<>();
+    this.entries = new HashMap<>();
+    this.trie = new PrefixTrie<>();
+  }
+
+  /**
+   * Start completing a player who has joined.
+   *
+   * @param player The player.
+   */
+  public synchronized void add(@NotNull Player player) {
+    online.put(player.getUniqueId(), player.getName());
+    update(player.getUniqueId());
+  }
+
+  /**
+   * Stop completing a player who has left.
+   *
+   * @param uuid The player's unique id.
+   */
+  public synchronized void remove(@NotNull UUID uuid) {
+    if (online.remove(uuid) != null) {
+      update(uuid);
+    }
+  }
+
+  /**
+   * Pick up a player's new nickname.
+   *
+   * @param uuid The player's unique id.
+   */
+  public synchronized void invalidate(@NotNull UUID uuid) {
+    if (online.containsKey(uuid)) {
+      update(uuid);
+    }
+  }
+
+  /**
+   * Complete online players' usernames and nicknames, for commands that take the player as a
+   * single argument. Nicknames containing whitespace would be split into several arguments, so
+   * they're left out.
+   *
+   * @param prefix What has been typed so far.
+   * @return Matching usernames and nicknames.
+   */
+  public @NotNull List<String> names(@NotNull String prefix) {
+    return trie.startingWith(prefix, CompletionIndex::isSingleArgument).stream()
+        .map(Completion::text).distinct().collect(Collectors.toList());
+  }
+
+  /**
+   * Complete online players' nicknames.
+   *
+   * @param prefix What has been typed so far.
+   * @return Matching nicknames.
+   */
+  public @NotNull List<String> nicks(@NotNull String prefix) {
+    return trie.startingWith(prefix, Completion::nick).stream()
+        .map(Completion::text).distinct().collect(Collectors.toList());
+  }
+
+  /**
+   * Replace a player's entries in the trie with their current name and nickname. New entries
+   * are added before old ones are removed, so completions never miss the player in between.
+   */
+  private void update(UUID uuid) {
+    List<Completion> current = new ArrayList<>(2);
+    String name = online.get(uuid);
+    if (name != null) {
+      current.add(new Completion(uuid, name, false));
+      NickStrings nick = Nicks.core().getNickStrings(uuid);
+      if (nick != null && !nick.plain().isBlank()) {
+        current.add(new Completion(uuid, nick.plain(), true));
+      }
+    }
+    current.forEach(completion -> trie.add(completion.text(), completion));
+    List<Completion> previous = current.isEmpty() ? entries.remove(uuid)
+        : entries.put(uuid, current);
+    if (previous != null) {
+      previous.stream().filter(completion -> !current.contains(completion))
+          .forEach(completion -> trie.remove(completion.text(), completion));
+    }
+  }
+
+  /**
+   * Whether a completion stays one argument, usernames never contain whitespace.
+   */
+  private static boolean isSingleArgument(Completion completion) {
+    return !completion.nick() || completion.text().codePoints()
+        .noneMatch(Character::isWhitespace);
+  }
+
+  /**
+   * A name or nickname, tied to its player so players sharing one each have their own entry.
+   */
+  private record Completion(UUID owner, String text, boolean nick) {
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>A MiniMessage string parsed once with the positions of its placeholders located ahead
+ * of time.</p>
+ * <p>Rendering only rebuilds the parts of the component tree that contain a placeholder,
+ * the rest of the parsed tree is reused as is. A placeholder's value is inserted as a child
+ * of the text it appeared in, so it inherits that text's style just like
+ * {@link net.kyori.adventure.text.TextReplacementConfig} replacements do. Placeholders in hover
+ * text are rendered the same way, placeholders in click values are replaced with the value's
+ * plain text.</p>
+ */
+public final class ComponentTemplate {
+
+  // Private use characters stand in for the placeholders while parsing
+  private static final char PRIVATE_USE_START = '\uE000';
+  private static final char PRIVATE_USE_END = '\uF8FF';
+
+  private final Node root;
+  private final String[] slots;
+  private final boolean[] used;
+
+  private ComponentTemplate(Node root, String[] slots, boolean[] used) {
+    this.root = root;
+    this.slots = slots;
+    this.used = used;
+  }
+
+  /**
+   * Parse a MiniMessage string into a template.
+   *
+   * @param miniMessage The MiniMessage string.
+   * @param slots       The literal placeholders in the string, such as <code>{message}</code>.
+   *                    Values are passed to {@link #render(ComponentLike...)} in this order.
+   * @return The compiled template.
+   */
+  public static @NotNull ComponentTemplate compile(@NotNull String miniMessage,
+                                                   @NotNull String... slots) {
+    Markers markers = Markers.freeIn(miniMessage, slots.length);
+    String marked = miniMessage;
+    boolean[] used = new boolean[slots.length];
+    for (int i = 0; i < slots.length; i++) {
+      used[i] = marked.contains(slots[i]);
+      marked = marked.replace(slots[i], String.valueOf(markers.marker(i)));
+    }
+    return new ComponentTemplate(compileNode(MiniMessage.get().parse(marked), markers),
+        slots.clone(), used);
+  }
+
+  /**
+   * Whether a placeholder appears in the template. Values for unused placeholders are
+   * ignored, so callers can skip computing them.
+   *
+   * @param slot The placeholder, as passed to {@link #compile(String, String...)}.
+   * @return True if the placeholder appears in the template.
+   */
+  public boolean uses(@NotNull String slot) {
+    for (int i = 0; i < slots.length; i++) {
+      if (slots[i].equals(slot)) {
+        return used[i];
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Build the component with the placeholders replaced.
+   *
+   * @param values One value per placeholder, in the order the placeholders were compiled with.
+   * @return The rendered component.
+   */
+  public @NotNull Component render(@NotNull ComponentLike... values) {
+    if (values.length != slots.length) {
+      throw new IllegalArgumentException("Expected " + slots.length + " values but got "
+          + values.length);
+    }
+    return root.render(values);
+  }
+
+  private static Node compileNode(Component component, Markers markers) {
+    Node node = compileContent(component, markers);
+    Node hover = null;
+    if (component.hoverEvent() != null
+        && component.hoverEvent().action() == HoverEvent.Action.SHOW_TEXT) {
+      Node text = compileNode((Component) component.hoverEvent().value(), markers);
+      hover = text instanceof StaticNode ? null : text;
+    }
+    ClickEvent click = component.clickEvent();
+    List<Object> clickParts = click != null && markers.containedIn(click.value())
+        ? split(click.value(), markers) : null;
+    return hover == null && clickParts == null ? node
+        : new EventNode(node, hover, clickParts == null ? null : click, clickParts);
+  }
+
+  private static Node compileContent(Component component, Markers markers) {
+    List<Node> children = new ArrayList<>(component.children().size());
+    boolean dynamic = false;
+    for (Component child : component.children()) {
+      Node node = compileNode(child, markers);
+      dynamic |= !(node instanceof StaticNode);
+      children.add(node);
+    }
+
+    if (component instanceof TextComponent text && markers.containedIn(text.content())) {
+      // Split the content into the leading text and the parts following it
+      List<Object> parts = split(text.content(), markers);
+      String leading = parts.get(0) instanceof String ? (String) parts.remove(0) : "";
+      parts.replaceAll(part -> part instanceof String segment ? Component.text(segment) : part);
+      return new TextNode(text.content(leading), parts, children);
+    }
+    return dynamic ? new ParentNode(component, children) : new StaticNode(component);
+  }
+
+  /**
+   * Split a string into its fixed segments and slot indexes, in order.
+   */
+  private static List<Object> split(String content, Markers markers) {
+    List<Object> parts = new ArrayList<>();
+    StringBuilder segment = new StringBuilder();
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      if (markers.isMarker(c)) {
+        if (segment.length() > 0) {
+          parts.add(segment.toString());
+          segment.setLength(0);
+        }
+        parts.add(markers.slot(c));
+      } else {
+        segment.append(c);
+      }
+    }
+    if (segment.length() > 0) {
+      parts.add(segment.toString());
+    }
+    return parts;
+  }
+
+  private static List<Component> renderAll(List<Node> nodes, ComponentLike[] values) {
+    List<Component> rendered = new ArrayList<>(nodes.size());
+    for (Node node : nodes) {
+      rendered.add(node.render(values));
+    }
+    return rendered;
+  }
+
+  /**
+   * The run of private use characters standing in for the placeholders of one template, chosen
+   * so that none of them already appear in the template's source.
+   */
+  private record Markers(char first, int count) {
+
+    static Markers freeIn(String source, int count) {
+      BitSet present = new BitSet();
+      for (int i = 0; i < source.length(); i++) {
+        char c = source.charAt(i);
+        if (c >= PRIVATE_USE_START && c <= PRIVATE_USE_END) {
+          present.set(c - PRIVATE_USE_START);
+        }
+      }
+      int range = PRIVATE_USE_END - PRIVATE_USE_START + 1;
+      int start = 0;
+      while (start + count <= range) {
+        int next = present.nextSetBit(start);
+        if (next < 0 || next >= start + count) {
+          return new Markers((char) (PRIVATE_USE_START + start), count);
+        }
+        start = next + 1;
+      }
+      throw new IllegalArgumentException("No free private use characters for placeholders.");
+    }
+
+    char marker(int slot) {
+      return (char) (first + slot);
+    }
+
+    boolean isMarker(char c) {
+      return c >= first && c < first + count;
+    }
+
+    int slot(char marker) {
+      return marker - first;
+    }
+
+    boolean containedIn(String content) {
+      for (int i = 0; i < content.length(); i++) {
+        if (isMarker(content.charAt(i))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private interface Node {
+    Component render(ComponentLike[] values);
+  }
+
+  /**
+   * Part of the tree without placeholders, reused for every render.
+   */
+  private record StaticNode(Component component) implements Node {
+    @Override
+    public Component render(ComponentLike[] values) {
+      return component;
+    }
+  }
+
+  /**
+   * A component whose own content is fixed but which has placeholders further down.
+   */
+  private record ParentNode(Component component, List<Node> children) implements Node {
+    @Override
+    public Component render(ComponentLike[] values) {
+      return component.children(renderAll(children, values));
+    }
+  }
+
+  /**
+   * A component with placeholders in its hover text or click value. Either may be null if
+   * it doesn't have any. The click value is kept split into fixed text and slot indexes.
+   */
+  private record EventNode(Node node, @Nullable Node hover, @Nullable ClickEvent click,
+                           @Nullable List<Object> clickParts) implements Node {
+    @Override
+    public Component render(ComponentLike[] values) {
+      Component component = node.render(values);
+      if (hover != null) {
+        component = component.hoverEvent(HoverEvent.showText(hover.render(values)));
+      }
+      if (click != null) {
+        StringBuilder value = new StringBuilder();
+        for (Object part : clickParts) {
+          value.append(part instanceof Integer slot ? PlainTextComponentSerializer.plainText()
+              .serialize(values[slot].asComponent()) : (String) part);
+        }
+        component = component.clickEvent(ClickEvent.clickEvent(click.action(), value.toString()));
+      }
+      return component;
+    }
+  }
+
+  /**
+   * Text containing placeholders. Parts are either fixed text components or slot indexes.
+   */
+  private record TextNode(TextComponent text, List<Object> parts, List<Node> children)
+      implements Node {
+    @Override
+    public Component render(ComponentLike[] values) {
+      List<Component> rendered = new ArrayList<>(parts.size() + children.size());
+      for (Object part : parts) {
+        rendered.add(part instanceof Integer slot ? values[slot].asComponent() : (Component) part);
+      }
+      rendered.addAll(renderAll(children, values));
+      return text.children(rendered);
+    }
+  }
+}
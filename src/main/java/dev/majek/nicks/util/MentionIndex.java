@@ -0,0 +1,204 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import dev.majek.nicks.Nicks;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Finds online players mentioned in chat messages by their username or plain nickname.</p>
+ * <p>The names are kept in an {@link AhoCorasick} matcher, so a message is scanned once no
+ * matter how many players are online. Joins, quits and nickname changes only mark the matcher
+ * as stale, it's rebuilt by the next chat message that needs it. The patterns used to highlight
+ * each player's names are compiled along with it. Safe to use from async chat threads.</p>
+ */
+public class MentionIndex {
+
+  // Shorter names would match ordinary words too often
+  private static final int MIN_LENGTH = 3;
+
+  private final Map<UUID, String>    online;
+  private volatile Names             names;
+  private volatile boolean           stale;
+
+  public MentionIndex() {
+    this.online = new ConcurrentHashMap<>();
+    this.names = new Names(AhoCorasick.<UUID>builder().build(), Collections.emptyMap());
+  }
+
+  /**
+   * Start matching a player who has joined.
+   *
+   * @param player The player.
+   */
+  public void add(@NotNull Player player) {
+    online.put(player.getUniqueId(), player.getName());
+    stale = true;
+  }
+
+  /**
+   * Stop matching a player who has left.
+   *
+   * @param uuid The player's unique id.
+   */
+  public void remove(@NotNull UUID uuid) {
+    if (online.remove(uuid) != null) {
+      stale = true;
+    }
+  }
+
+  /**
+   * Pick up a player's new nickname.
+   *
+   * @param uuid The player's unique id.
+   */
+  public void invalidate(@NotNull UUID uuid) {
+    if (online.containsKey(uuid)) {
+      stale = true;
+    }
+  }
+
+  /**
+   * Find the players mentioned in a message. Only whole words count, and where mentions
+   * overlap the longest one wins. Senders don't mention themselves.
+   *
+   * @param sender  The unique id of the player who sent the message.
+   * @param message The plain text of the message.
+   * @return The mentioned players, each with the text that mentioned them.
+   */
+  public @NotNull Map<UUID, Set<String>> find(@NotNull UUID sender, @NotNull String message) {
+    AhoCorasick<UUID> current = current().matcher();
+    if (current.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    List<AhoCorasick.Match<UUID>> matches = new ArrayList<>(current.findAll(message));
+    if (matches.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    matches.sort(Comparator.<AhoCorasick.Match<UUID>>comparingInt(AhoCorasick.Match::start)
+        .thenComparing(match -> match.start() - match.end()));
+    Map<UUID, Set<String>> mentions = new HashMap<>();
+    int lastStart = -1;
+    int lastEnd = 0;
+    for (AhoCorasick.Match<UUID> match : matches) {
+      // Players sharing a name are all mentioned by it
+      boolean sameSpan = match.start() == lastStart && match.end() == lastEnd;
+      if ((match.start() < lastEnd && !sameSpan) || !isWord(message, match.start(), match.end())) {
+        continue;
+      }
+      lastStart = match.start();
+      lastEnd = match.end();
+      if (!match.value().equals(sender)) {
+        mentions.computeIfAbsent(match.value(), uuid -> new HashSet<>())
+            .add(message.substring(match.start(), match.end()));
+      }
+    }
+    return mentions;
+  }
+
+  /**
+   * Get the pattern matching any of an online player's names as whole words, ignoring case.
+   * Used to highlight the player's mentions in a message.
+   *
+   * @param uuid The player's unique id.
+   * @return The pattern, or null if the player has no names long enough to be mentioned.
+   */
+  public @Nullable Pattern pattern(@NotNull UUID uuid) {
+    return current().patterns().get(uuid);
+  }
+
+  /**
+   * The matcher and patterns for the current names, rebuilt first if anything changed.
+   */
+  private Names current() {
+    if (stale) {
+      synchronized (this) {
+        if (stale) {
+          // Cleared before reading so changes made during the rebuild mark it stale again
+          stale = false;
+          AhoCorasick.Builder<UUID> builder = AhoCorasick.builder();
+          Map<UUID, Pattern> patterns = new HashMap<>();
+          online.forEach((uuid, name) -> {
+            StringJoiner alternatives = new StringJoiner("|", "(?<![\\p{L}\\p{N}_])(?:",
+                ")(?![\\p{L}\\p{N}_])");
+            alternatives.setEmptyValue("");
+            addName(builder, alternatives, name, uuid);
+            NickStrings nick = Nicks.core().getNickStrings(uuid);
+            if (nick != null) {
+              addName(builder, alternatives, nick.plain(), uuid);
+            }
+            if (alternatives.length() > 0) {
+              patterns.put(uuid, Pattern.compile(alternatives.toString(),
+                  Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            }
+          });
+          names = new Names(builder.build(), patterns);
+        }
+      }
+    }
+    return names;
+  }
+
+  private void addName(AhoCorasick.Builder<UUID> builder, StringJoiner alternatives,
+                       String name, UUID uuid) {
+    String trimmed = name.trim();
+    if (trimmed.length() >= MIN_LENGTH) {
+      builder.add(trimmed, uuid);
+      alternatives.add(Pattern.quote(trimmed));
+    }
+  }
+
+  /**
+   * Whether a match isn't part of a longer word.
+   */
+  private boolean isWord(String text, int start, int end) {
+    return (start == 0 || !isWordChar(text.charAt(start - 1)))
+        && (end == text.length() || !isWordChar(text.charAt(end)));
+  }
+
+  private boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  /**
+   * One build of the index, swapped in whole so the matcher and patterns always agree.
+   */
+  private record Names(AhoCorasick<UUID> matcher, Map<UUID, Pattern> patterns) {
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import dev.majek.nicks.Nicks;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The string forms of a nickname, serialized once when the nickname is set so placeholder
+ * requests don't serialize the component again on every call.
+ *
+ * @param miniMessage The nickname in MiniMessage format.
+ * @param plain       The nickname without any formatting.
+ * @param legacy      The nickname with legacy section sign color codes.
+ */
+public record NickStrings(@NotNull String miniMessage, @NotNull String plain,
+                          @NotNull String legacy) {
+
+  /**
+   * Serialize a nickname into all of its string forms.
+   *
+   * @param nick The nickname.
+   * @return The string forms.
+   */
+  public static @NotNull NickStrings of(@NotNull Component nick) {
+    return new NickStrings(MiniMessage.get().serialize(nick),
+        PlainTextComponentSerializer.plainText().serialize(nick), Nicks.utils().toLegacy(nick));
+  }
+}
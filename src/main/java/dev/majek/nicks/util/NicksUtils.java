@@ -24,40 +24,290 @@
 
 package dev.majek.nicks.util;
 
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.config.NicksMessages;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 /**
  * Handles general utility methods.
  */
 public class NicksUtils {
 
+  private static final String[] LEGACY_TAGS = new String['z' + 1];
+  private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
+      .character(LegacyComponentSerializer.SECTION_CHAR).hexColors()
+      .useUnusualXRepeatedCharacterHexFormat().build();
+
+  static {
+    String[] colors = {"black", "dark_blue", "dark_green", "dark_aqua", "dark_red",
+        "dark_purple", "gold", "gray", "dark_gray", "blue", "green", "aqua", "red",
+        "light_purple", "yellow", "white"};
+    for (int i = 0; i < colors.length; i++) {
+      LEGACY_TAGS[Character.forDigit(i, 16)] = "<" + colors[i] + ">";
+    }
+    LEGACY_TAGS['k'] = "<obfuscated>";
+    LEGACY_TAGS['l'] = "<bold>";
+    LEGACY_TAGS['m'] = "<strikethrough>";
+    LEGACY_TAGS['n'] = "<underlined>";
+    LEGACY_TAGS['o'] = "<italic>";
+    LEGACY_TAGS['r'] = "<reset>";
+  }
+
   /**
-   * Convert a string with legacy codes into a string with MiniMessage tags.
+   * Convert a string with legacy codes into a string with MiniMessage tags. Both
+   * <code>&amp;</code> and <code>§</code> codes are converted, as well as hex colors written as
+   * <code>&amp;#rrggbb</code> or <code>&amp;x&amp;r&amp;r&amp;g&amp;g&amp;b&amp;b</code>.
+   * The text is scanned once.
    *
    * @param text Text to search
    * @return String with MiniMessage tags.
    */
   public String legacyToMini(String text) {
-    text = text.replace("&0", "<black>");
-    text = text.replace("&1", "<dark_blue>");
-    text = text.replace("&2", "<dark_green>");
-    text = text.replace("&3", "<dark_aqua>");
-    text = text.replace("&4", "<dark_red>");
-    text = text.replace("&5", "<dark_purple>");
-    text = text.replace("&6", "<gold>");
-    text = text.replace("&7", "<gray>");
-    text = text.replace("&8", "<dark_gray>");
-    text = text.replace("&9", "<blue>");
-    text = text.replace("&a", "<green>");
-    text = text.replace("&b", "<aqua>");
-    text = text.replace("&c", "<red>");
-    text = text.replace("&d", "<light_purple>");
-    text = text.replace("&e", "<yellow>");
-    text = text.replace("&f", "<white>");
-    text = text.replace("&m", "<underlined>");
-    text = text.replace("&m", "<strikethrough>");
-    text = text.replace("&k", "<obfuscated>");
-    text = text.replace("&o", "<italic>");
-    text = text.replace("&l", "<bold>");
-    text = text.replace("&r", "<reset>");
-    return text;
-  }
-}
\ No newline at end of file
+    StringBuilder mini = new StringBuilder(text.length() + 16);
+    int length = text.length();
+    int i = 0;
+    while (i < length) {
+      char c = text.charAt(i);
+      if ((c != '&' && c != LegacyComponentSerializer.SECTION_CHAR) || i + 1 >= length) {
+        mini.append(c);
+        i++;
+        continue;
+      }
+      char code = Character.toLowerCase(text.charAt(i + 1));
+      if (code == '#' && isHex(text, i + 2, 6, 1)) {
+        mini.append("<#").append(text, i + 2, i + 8).append('>');
+        i += 8;
+      } else if (code == 'x' && isHex(text, i + 3, 6, 2) && isCodeChars(text, i + 2)) {
+        mini.append("<#");
+        for (int j = i + 3; j < i + 14; j += 2) {
+          mini.append(text.charAt(j));
+        }
+        mini.append('>');
+        i += 14;
+      } else if (code < LEGACY_TAGS.length && LEGACY_TAGS[code] != null) {
+        mini.append(LEGACY_TAGS[code]);
+        i += 2;
+      } else {
+        mini.append(c);
+        i++;
+      }
+    }
+    return mini.toString();
+  }
+
+  /**
+   * Convert a component into a string with legacy <code>§</code> codes, for plugins that
+   * only understand legacy text. Hex colors use the <code>§x§r§r§g§g§b§b</code> form.
+   *
+   * @param component The component to convert.
+   * @return Legacy string.
+   */
+  public @NotNull String toLegacy(@NotNull Component component) {
+    return LEGACY.serialize(component);
+  }
+
+  /**
+   * Convert a string with MiniMessage tags into a string with legacy <code>§</code> codes.
+   *
+   * @param text The MiniMessage string.
+   * @return Legacy string.
+   */
+  public @NotNull String miniToLegacy(@NotNull String text) {
+    return toLegacy(MiniMessage.get().parse(text));
+  }
+
+  /**
+   * Parse a string with legacy <code>§</code> codes, including hex colors in the
+   * <code>§x§r§r§g§g§b§b</code> form, into a component.
+   *
+   * @param text The legacy string.
+   * @return Component.
+   */
+  public @NotNull Component fromLegacy(@NotNull String text) {
+    return LEGACY.deserialize(text);
+  }
+
+  /**
+   * Whether a run of hex digits starts at an index, each separated by the given step.
+   */
+  private boolean isHex(String text, int start, int count, int step) {
+    if (start + (count - 1) * step >= text.length()) {
+      return false;
+    }
+    for (int i = 0; i < count; i++) {
+      if (Character.digit(text.charAt(start + i * step), 16) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether the six code characters of a <code>&amp;x</code> hex color are in place.
+   */
+  private boolean isCodeChars(String text, int start) {
+    for (int i = start; i < start + 12; i += 2) {
+      char c = text.charAt(i);
+      if (c != '&' && c != LegacyComponentSerializer.SECTION_CHAR) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a player has a nickname change left without using it up, telling them how
+   * long to wait if they don't. Players with <code>papernicks.ratelimit.bypass</code> are never
+   * limited.
+   *
+   * @param player The player changing their nickname.
+   * @return True if the player has to wait before changing their nickname again.
+   */
+  public boolean isRateLimited(@NotNull Player player) {
+    return rateLimit(player, false);
+  }
+
+  /**
+   * Use up one of a player's nickname changes once the change is about to be applied, telling
+   * them how long to wait if they have none left.
+   *
+   * @param player The player changing their nickname.
+   * @return True if the player has to wait before changing their nickname again.
+   */
+  public boolean useRateLimit(@NotNull Player player) {
+    return rateLimit(player, true);
+  }
+
+  private boolean rateLimit(Player player, boolean use) {
+    if (!Nicks.config().RATE_LIMIT || player.hasPermission("papernicks.ratelimit.bypass")) {
+      return false;
+    }
+    RateLimiter limiter = Nicks.core().getRateLimiter();
+    long wait = use ? limiter.tryAcquire(player.getUniqueId())
+        : limiter.waitTime(player.getUniqueId());
+    if (wait > 0) {
+      NicksMessages.RATE_LIMITED.send(player, wait);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Find an online player by their username or their nickname, ignoring case. Exact usernames
+   * win over nicknames, and if neither matches the player whose username starts with the input
+   * is used, like {@link Bukkit#getPlayer(String)}.
+   *
+   * @param input The username or plain text nickname.
+   * @return The player if found.
+   */
+  public @Nullable Player findOnlinePlayer(@NotNull String input) {
+    Player player = Bukkit.getPlayerExact(input);
+    if (player != null) {
+      return player;
+    }
+    for (UUID owner : Nicks.core().getNickOwners(input.toLowerCase(Locale.ROOT))) {
+      player = Bukkit.getPlayer(owner);
+      if (player != null) {
+        return player;
+      }
+    }
+    return Bukkit.getPlayer(input);
+  }
+
+  /**
+   * Reduce a component to a minimal tree that renders the same. Empty text wrappers around a
+   * single child are collapsed into the child, empty wrappers without style are spliced into
+   * their parent, style already inherited from the parent is dropped, and adjacent text with
+   * identical style is merged. Normalizing an already normalized component returns an equal
+   * component.
+   *
+   * @param component The component to normalize.
+   * @return Normalized component.
+   */
+  public @NotNull Component normalize(@NotNull Component component) {
+    Style style = component.style();
+    List<Component> children = new ArrayList<>(component.children().size());
+    for (Component child : component.children()) {
+      child = normalize(child);
+      child = child.style(withoutInherited(child.style(), style));
+      if (isEmptyText(child)) {
+        if (child.children().isEmpty()) {
+          continue;
+        }
+        if (child.style().isEmpty()) {
+          for (Component grandchild : child.children()) {
+            appendMerging(children, grandchild.style(withoutInherited(grandchild.style(), style)));
+          }
+          continue;
+        }
+      }
+      appendMerging(children, child);
+    }
+
+    if (isEmptyText(component)) {
+      if (children.isEmpty()) {
+        return Component.empty();
+      }
+      // An empty wrapper around one child is just the child with the wrapper's style
+      if (children.size() == 1) {
+        // Normalize again since the child's own children may now inherit more
+        Component child = children.get(0);
+        return normalize(child.style(child.style()
+            .merge(style, Style.Merge.Strategy.IF_ABSENT_ON_TARGET)));
+      }
+    }
+    return component.children(children);
+  }
+
+  /**
+   * Remove color and decorations from a style that it would inherit from its parent anyway.
+   */
+  private Style withoutInherited(Style style, Style parent) {
+    Style.Builder builder = style.toBuilder();
+    if (style.color() != null && style.color().equals(parent.color())) {
+      builder.color(null);
+    }
+    for (TextDecoration decoration : TextDecoration.values()) {
+      TextDecoration.State state = style.decoration(decoration);
+      if (state != TextDecoration.State.NOT_SET && state == parent.decoration(decoration)) {
+        builder.decoration(decoration, TextDecoration.State.NOT_SET);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Add a component to a list of siblings, merging it into the previous sibling if both are
+   * plain text with the same style.
+   */
+  private void appendMerging(List<Component> siblings, Component component) {
+    if (!siblings.isEmpty()) {
+      Component last = siblings.get(siblings.size() - 1);
+      if (last instanceof TextComponent lastText && component instanceof TextComponent text
+          && last.children().isEmpty() && text.children().isEmpty()
+          && last.style().equals(text.style())) {
+        siblings.set(siblings.size() - 1,
+            Component.text(lastText.content() + text.content(), text.style()));
+        return;
+      }
+    }
+    siblings.add(component);
+  }
+
+  private boolean isEmptyText(Component component) {
+    return component instanceof TextComponent text && text.content().isEmpty();
+  }
+}
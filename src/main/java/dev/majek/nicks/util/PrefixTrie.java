@@ -0,0 +1,127 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Finds the entries starting with a prefix, ignoring case. Finding them only visits the
+ * prefix's path and the entries below it, so the time taken grows with the number of results
+ * rather than the number of entries.</p>
+ * <p>Entries are added and removed in place, only touching the path of their key. Changes are
+ * serialized, lookups never block and are safe from any thread while entries change.</p>
+ *
+ * @param <T> The entry type.
+ */
+public final class PrefixTrie<T> {
+
+  private final Node<T> root = new Node<>();
+
+  /**
+   * Add an entry. Adding an entry that is already there under the same key does nothing.
+   *
+   * @param key   The text the entry is found by.
+   * @param entry The entry.
+   */
+  public synchronized void add(@NotNull String key, @NotNull T entry) {
+    Node<T> node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.children.computeIfAbsent(Character.toLowerCase(key.charAt(i)),
+          c -> new Node<>());
+    }
+    node.entries.add(entry);
+  }
+
+  /**
+   * Remove an entry, pruning the nodes on its path that are left empty.
+   *
+   * @param key   The text the entry was added with.
+   * @param entry The entry.
+   */
+  public synchronized void remove(@NotNull String key, @NotNull T entry) {
+    List<Node<T>> path = new ArrayList<>(key.length() + 1);
+    Node<T> node = root;
+    path.add(node);
+    for (int i = 0; i < key.length(); i++) {
+      node = node.children.get(Character.toLowerCase(key.charAt(i)));
+      if (node == null) {
+        return;
+      }
+      path.add(node);
+    }
+    if (!node.entries.remove(entry)) {
+      return;
+    }
+    for (int i = key.length(); i > 0; i--) {
+      Node<T> child = path.get(i);
+      if (!child.entries.isEmpty() || !child.children.isEmpty()) {
+        break;
+      }
+      path.get(i - 1).children.remove(Character.toLowerCase(key.charAt(i - 1)), child);
+    }
+  }
+
+  /**
+   * Find the entries whose key starts with a prefix.
+   *
+   * @param prefix The prefix, case is ignored.
+   * @param filter Which entries to include.
+   * @return The matching entries.
+   */
+  public @NotNull List<T> startingWith(@NotNull String prefix, @NotNull Predicate<T> filter) {
+    Node<T> node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.children.get(Character.toLowerCase(prefix.charAt(i)));
+    }
+    List<T> results = new ArrayList<>();
+    if (node != null) {
+      collect(node, filter, results);
+    }
+    return results;
+  }
+
+  private void collect(Node<T> node, Predicate<T> filter, List<T> results) {
+    for (T entry : node.entries) {
+      if (filter.test(entry)) {
+        results.add(entry);
+      }
+    }
+    for (Node<T> child : node.children.values()) {
+      collect(child, filter, results);
+    }
+  }
+
+  private static final class Node<T> {
+
+    private final Map<Character, Node<T>> children = new ConcurrentHashMap<>();
+    private final Set<T>                  entries = ConcurrentHashMap.newKeySet(1);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Per-player token bucket limiting how often something can be done.</p>
+ * <p>Every player starts with a full bucket of <code>burst</code> tokens and earns one back
+ * every <code>refill</code> seconds. Each use costs one token and is refused while the bucket
+ * is empty.</p>
+ */
+public class RateLimiter {
+
+  private final Map<UUID, Bucket>            buckets;
+  private volatile int                       burst;
+  private volatile long                      refillNanos;
+
+  /**
+   * Create a new limiter.
+   *
+   * @param burst How many uses can be made in a row.
+   * @param refill How many seconds it takes to earn back one use.
+   */
+  public RateLimiter(int burst, int refill) {
+    this.buckets = new ConcurrentHashMap<>();
+    configure(burst, refill);
+  }
+
+  /**
+   * Change the limits. Players keep the tokens they have, up to the new burst.
+   *
+   * @param burst How many uses can be made in a row.
+   * @param refill How many seconds it takes to earn back one use.
+   */
+  public void configure(int burst, int refill) {
+    this.burst = Math.max(1, burst);
+    this.refillNanos = Math.max(0, refill) * 1_000_000_000L;
+  }
+
+  /**
+   * Try to use one token.
+   *
+   * @param uuid The player's unique id.
+   * @return 0 if the token was used, otherwise how many seconds until the next token.
+   */
+  public long tryAcquire(@NotNull UUID uuid) {
+    if (refillNanos == 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    long[] wait = new long[1];
+    buckets.compute(uuid, (key, bucket) -> {
+      if (bucket == null) {
+        bucket = new Bucket(burst, now);
+      }
+      bucket.refill(now, burst, refillNanos);
+      if (bucket.tokens > 0) {
+        bucket.tokens--;
+      } else {
+        wait[0] = refillNanos - (now - bucket.updated);
+      }
+      return bucket;
+    });
+    return toSeconds(wait[0]);
+  }
+
+  /**
+   * Check how long a player has to wait for a token without using one.
+   *
+   * @param uuid The player's unique id.
+   * @return 0 if a token is available, otherwise how many seconds until the next token.
+   */
+  public long waitTime(@NotNull UUID uuid) {
+    if (refillNanos == 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    long[] wait = new long[1];
+    buckets.computeIfPresent(uuid, (key, bucket) -> {
+      bucket.refill(now, burst, refillNanos);
+      if (bucket.tokens == 0) {
+        wait[0] = refillNanos - (now - bucket.updated);
+      }
+      return bucket;
+    });
+    return toSeconds(wait[0]);
+  }
+
+  /**
+   * Forget a player's bucket if it has filled up again, for example when they leave. A full
+   * bucket is the same as no bucket, while a partly used one is kept so leaving and joining
+   * again doesn't reset the limit.
+   *
+   * @param uuid The player's unique id.
+   */
+  public void trim(@NotNull UUID uuid) {
+    long now = System.nanoTime();
+    buckets.computeIfPresent(uuid, (key, bucket) -> {
+      if (refillNanos > 0) {
+        bucket.refill(now, burst, refillNanos);
+      }
+      return refillNanos == 0 || bucket.tokens >= burst ? null : bucket;
+    });
+  }
+
+  /**
+   * Round up so players aren't told to wait 0 seconds.
+   */
+  private static long toSeconds(long nanos) {
+    return (nanos + 999_999_999L) / 1_000_000_000L;
+  }
+
+  /**
+   * Tokens a player has left, only changed while holding the map entry.
+   */
+  private static class Bucket {
+
+    private int  tokens;
+    private long updated;
+
+    private Bucket(int tokens, long updated) {
+      this.tokens = tokens;
+      this.updated = updated;
+    }
+
+    /**
+     * Add the tokens earned since the last update, keeping the time spent on a partial token.
+     */
+    private void refill(long now, int burst, long refillNanos) {
+      if (tokens >= burst) {
+        // A full bucket doesn't bank time towards the next token
+        tokens = burst;
+        updated = now;
+        return;
+      }
+      long earned = (now - updated) / refillNanos;
+      if (earned <= 0) {
+        return;
+      }
+      if (tokens + earned >= burst) {
+        tokens = burst;
+        updated = now;
+      } else {
+        tokens += (int) earned;
+        updated += earned * refillNanos;
+      }
+    }
+  }
+}
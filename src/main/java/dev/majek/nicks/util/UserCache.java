@@ -0,0 +1,85 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads the names of players who recently joined from the server's <code>usercache.json</code>,
+ * which is much cheaper than asking Bukkit for every offline player.
+ */
+public final class UserCache {
+
+  private UserCache() {
+  }
+
+  /**
+   * Read the usernames in a user cache file. Malformed entries are skipped.
+   *
+   * @param file The user cache file.
+   * @return Usernames keyed by unique id, empty if the file doesn't exist.
+   * @throws IOException if the file cannot be read or isn't a Json array.
+   */
+  public static @NotNull Map<UUID, String> read(@NotNull File file) throws IOException {
+    Map<UUID, String> names = new HashMap<>();
+    if (!file.exists()) {
+      return names;
+    }
+    try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+      JsonElement root = JsonParser.parseReader(reader);
+      if (!root.isJsonArray()) {
+        throw new IOException(file.getName() + " does not contain a Json array.");
+      }
+      for (JsonElement element : root.getAsJsonArray()) {
+        if (!element.isJsonObject()) {
+          continue;
+        }
+        JsonObject entry = element.getAsJsonObject();
+        try {
+          names.put(UUID.fromString(entry.get("uuid").getAsString()),
+              entry.get("name").getAsString());
+        } catch (RuntimeException e) {
+          // Missing or invalid fields, skip the entry
+        }
+      }
+    } catch (JsonParseException e) {
+      throw new IOException(file.getName() + " contains malformed Json.", e);
+    }
+    return names;
+  }
+}
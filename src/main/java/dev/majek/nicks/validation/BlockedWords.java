@@ -0,0 +1,183 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.validation;
+
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.util.AhoCorasick;
+import dev.majek.nicks.validation.NickFailure.Reason;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Rejects nicknames containing any word from <code>blocked-words.txt</code> in the plugin
+ * folder.</p>
+ * <p>Words and nicknames are both normalized before matching: case is folded, accents are
+ * stripped, common leetspeak substitutions are undone and everything but letters is dropped,
+ * so <code>B4.d-W0rd</code> and <code>bádword</code> both contain <code>badword</code>. This
+ * also finds words across word boundaries and inside longer words, so with
+ * <code>blocked-words-match: whole-word</code> separators are kept as word breaks instead and
+ * only whole words match. All words are compiled into one {@link AhoCorasick} matcher, so
+ * checking a nickname is a single scan no matter how long the list is. Reloading builds the
+ * new matcher off the main thread and swaps it in once it's ready.</p>
+ */
+public class BlockedWords implements NickRule {
+
+  public static final String FILE_NAME = "blocked-words.txt";
+  private static final char[] LEET = new char['|' + 1];
+
+  static {
+    LEET['0'] = 'o';
+    LEET['1'] = 'i';
+    LEET['3'] = 'e';
+    LEET['4'] = 'a';
+    LEET['5'] = 's';
+    LEET['7'] = 't';
+    LEET['8'] = 'b';
+    LEET['@'] = 'a';
+    LEET['$'] = 's';
+    LEET['!'] = 'i';
+    LEET['|'] = 'l';
+  }
+
+  private final AtomicInteger         generation;
+  private volatile Matcher            matcher;
+
+  public BlockedWords() {
+    this.generation = new AtomicInteger();
+    this.matcher = new Matcher(AhoCorasick.<String>builder().build(), false);
+  }
+
+  /**
+   * Read the word list again and rebuild the matcher asynchronously. Until the new matcher is
+   * ready the previous one stays in use. If reloads overlap, the last one wins.
+   */
+  public void reload() {
+    if (!Nicks.core().isEnabled()) {
+      // The scheduler isn't available yet, the reload on enable will load the list
+      return;
+    }
+    File file = new File(Nicks.core().getDataFolder(), FILE_NAME);
+    if (!file.exists()) {
+      Nicks.core().saveResource(FILE_NAME, false);
+    }
+    boolean wholeWords = "whole-word".equalsIgnoreCase(Nicks.core().getConfig()
+        .getString("blocked-words-match", "anywhere"));
+    int current = generation.incrementAndGet();
+    Bukkit.getScheduler().runTaskAsynchronously(Nicks.core(), () -> {
+      Matcher built = new Matcher(load(file, wholeWords), wholeWords);
+      if (generation.get() == current) {
+        matcher = built;
+      }
+    });
+  }
+
+  @Override
+  public @Nullable NickFailure check(@Nullable UUID owner, @NotNull String plain,
+                                     @NotNull String folded) {
+    Matcher current = matcher;
+    if (current.words().isEmpty()) {
+      return null;
+    }
+    String normalized = normalize(plain, current.wholeWords());
+    for (AhoCorasick.Match<String> match : current.words().findAll(normalized)) {
+      if (!current.wholeWords() || (isBreak(normalized, match.start() - 1)
+          && isBreak(normalized, match.end()))) {
+        return new NickFailure(Reason.BLOCKED_WORD, match.value());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Whether an index is outside the text or a word break.
+   */
+  private static boolean isBreak(String normalized, int index) {
+    return index < 0 || index >= normalized.length() || normalized.charAt(index) == ' ';
+  }
+
+  private AhoCorasick<String> load(File file, boolean wholeWords) {
+    AhoCorasick.Builder<String> builder = AhoCorasick.builder();
+    int count = 0;
+    try {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        String word = line.trim();
+        if (word.isEmpty() || word.startsWith("#")) {
+          continue;
+        }
+        String normalized = normalize(word, wholeWords);
+        if (!normalized.isEmpty()) {
+          builder.add(normalized, word);
+          count++;
+        }
+      }
+    } catch (IOException e) {
+      Nicks.error("Error reading " + FILE_NAME + ":");
+      e.printStackTrace();
+    }
+    Nicks.debug("Loaded " + count + " blocked words.");
+    return builder.build();
+  }
+
+  /**
+   * Fold a string down to the letters that matter for matching.
+   *
+   * @param text       The text to fold.
+   * @param keepBreaks Whether runs of separators become a single space instead of being dropped.
+   */
+  static @NotNull String normalize(@NotNull String text, boolean keepBreaks) {
+    // Compatibility decomposition also turns full width and styled letters into plain ones
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+    StringBuilder normalized = new StringBuilder(decomposed.length());
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = Character.toLowerCase(decomposed.charAt(i));
+      if (c < LEET.length && LEET[c] != 0) {
+        c = LEET[c];
+      }
+      if (Character.isLetter(c)) {
+        normalized.append(c);
+      } else if (keepBreaks && Character.getType(c) != Character.NON_SPACING_MARK
+          && normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+        normalized.append(' ');
+      }
+      // Otherwise drops accents left behind by the decomposition as well as separators
+    }
+    return normalized.toString().stripTrailing();
+  }
+
+  /**
+   * The words to find and how to match them, swapped together on reload.
+   */
+  private record Matcher(AhoCorasick<String> words, boolean wholeWords) {
+  }
+}
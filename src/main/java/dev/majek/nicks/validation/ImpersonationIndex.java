@@ -0,0 +1,117 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.validation;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Finds names and nicknames that look like a new nickname, to stop players impersonating
+ * each other with look-alike characters.</p>
+ * <p>The real names of players in the user cache or logging in and every loaded nickname are
+ * indexed by their {@link Skeleton}, so checking a nickname is one lookup no matter how many
+ * names are known. With lazy loading only the nicknames of loaded players are indexed. Safe to
+ * use from any thread.</p>
+ */
+public class ImpersonationIndex {
+
+  private final Map<String, Map<UUID, String>> names;
+  private final Map<String, Map<UUID, String>> nicks;
+
+  public ImpersonationIndex() {
+    this.names = new ConcurrentHashMap<>();
+    this.nicks = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Remember a player's real name.
+   *
+   * @param uuid The player's unique id.
+   * @param name The player's username.
+   */
+  public void addName(@NotNull UUID uuid, @NotNull String name) {
+    add(names, Skeleton.of(name), uuid, name);
+  }
+
+  /**
+   * Index a player's nickname, replacing their previous one.
+   *
+   * @param uuid     The player's unique id.
+   * @param previous The plain text of the previous nickname, null if they had none.
+   * @param nick     The plain text of the new nickname, null if it was removed.
+   */
+  public void updateNick(@NotNull UUID uuid, @Nullable String previous, @Nullable String nick) {
+    if (previous != null) {
+      nicks.computeIfPresent(Skeleton.of(previous), (skeleton, owners) -> {
+        owners.remove(uuid);
+        return owners.isEmpty() ? null : owners;
+      });
+    }
+    if (nick != null) {
+      add(nicks, Skeleton.of(nick), uuid, nick);
+    }
+  }
+
+  /**
+   * Find another player's name or nickname that looks like a nickname. The owner's own real
+   * name and current nickname never conflict.
+   *
+   * @param owner      The unique id of the player who would get the nickname, null if unknown.
+   * @param plain      The plain text of the nickname.
+   * @param sharedNick Whether nicknames may be shared, in which case another player's nickname
+   *                   only conflicts if it looks alike without being the same, ignoring case.
+   * @return The name or nickname it looks like, or null if there is none.
+   */
+  public @Nullable String findConflict(@Nullable UUID owner, @NotNull String plain,
+                                       boolean sharedNick) {
+    String skeleton = Skeleton.of(plain);
+    String conflict = find(names.get(skeleton), owner, null);
+    return conflict != null ? conflict
+        : find(nicks.get(skeleton), owner, sharedNick ? plain : null);
+  }
+
+  private @Nullable String find(@Nullable Map<UUID, String> owners, @Nullable UUID owner,
+                                @Nullable String same) {
+    if (owners == null) {
+      return null;
+    }
+    for (Map.Entry<UUID, String> entry : owners.entrySet()) {
+      if (!entry.getKey().equals(owner) && !entry.getValue().equalsIgnoreCase(same)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private void add(Map<String, Map<UUID, String>> index, String skeleton, UUID uuid,
+                   String name) {
+    if (!skeleton.isEmpty()) {
+      index.computeIfAbsent(skeleton, key -> new ConcurrentHashMap<>()).put(uuid, name);
+    }
+  }
+}
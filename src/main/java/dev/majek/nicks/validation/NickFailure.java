@@ -0,0 +1,82 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.validation;
+
+import dev.majek.nicks.config.NicksMessages;
+import net.kyori.adventure.audience.Audience;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Why a nickname isn't allowed.
+ *
+ * @param reason The rule that failed.
+ * @param detail What failed the rule, such as the length limit or the offending characters.
+ */
+public record NickFailure(@NotNull Reason reason, @NotNull String detail) {
+
+  /**
+   * Tell someone why the nickname isn't allowed.
+   *
+   * @param audience The player or console that tried to set the nickname.
+   */
+  public void send(@NotNull Audience audience) {
+    switch (reason) {
+      case TOO_SHORT -> NicksMessages.TOO_SHORT.send(audience, Integer.parseInt(detail));
+      case TOO_LONG -> NicksMessages.TOO_LONG.send(audience, Integer.parseInt(detail));
+      case NON_ALPHANUMERIC -> NicksMessages.NON_ALPHANUMERIC.send(audience);
+      case INVALID_CHARACTERS -> NicksMessages.INVALID_CHARACTERS.send(audience, detail);
+      case BLOCKED_PATTERN, BLOCKED_WORD, OTHER -> NicksMessages.NICKNAME_NOT_ALLOWED.send(audience);
+      case RESERVED -> NicksMessages.NICKNAME_RESERVED.send(audience);
+      case TAKEN -> NicksMessages.NICKNAME_TAKEN.send(audience);
+      case IMPERSONATION -> NicksMessages.NICKNAME_IMPERSONATION.send(audience, detail);
+    }
+  }
+
+  /**
+   * The kinds of rules a nickname can fail.
+   */
+  public enum Reason {
+    /** Shorter than the minimum length, the detail is the minimum. */
+    TOO_SHORT,
+    /** Longer than the maximum length, the detail is the maximum. */
+    TOO_LONG,
+    /** Not alphanumeric while that's required, the detail is the offending characters. */
+    NON_ALPHANUMERIC,
+    /** Contains characters that aren't allowed, the detail is the offending characters. */
+    INVALID_CHARACTERS,
+    /** Matches a blocked pattern, the detail is the pattern. */
+    BLOCKED_PATTERN,
+    /** Contains a blocked word, the detail is the word. */
+    BLOCKED_WORD,
+    /** Is a reserved nickname, the detail is the reserved nickname. */
+    RESERVED,
+    /** Another player has the nickname or that username, the detail is the nickname. */
+    TAKEN,
+    /** Looks like another player's name or nickname, the detail is that name. */
+    IMPERSONATION,
+    /** Failed a rule added by another plugin. */
+    OTHER
+  }
+}
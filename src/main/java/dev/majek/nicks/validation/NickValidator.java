@@ -0,0 +1,270 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.validation;
+
+import dev.majek.nicks.Nicks;
+import dev.majek.nicks.validation.NickFailure.Reason;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Checks nicknames against the rules from the config, compiled once per reload.</p>
+ * <p>Length and allowed characters are checked together in one pass over the plain nickname,
+ * followed by the blocked patterns, the reserved nicknames, the blocked words, uniqueness, the
+ * look-alike check and finally any rules added by other plugins. The first rule that fails
+ * decides the result. Instances never change after they're created, so validating is safe from
+ * any thread.</p>
+ */
+public final class NickValidator {
+
+  private static final String ALPHANUMERIC = "a-zA-Z0-9";
+
+  private final int             minLength;
+  private final int             maxLength;
+  private final BitSet          allowed;
+  private final Pattern         allowedPattern;
+  private final Reason          characterReason;
+  private final List<Pattern>   blockedPatterns;
+  private final Set<String>     reserved;
+  private final String          impersonation;
+  private final boolean         uniqueNicks;
+  private final List<NickRule>  rules;
+
+  /**
+   * Compile the rules from the config.
+   *
+   * @param config       The plugin config.
+   * @param blockedWords The blocked word list.
+   */
+  public NickValidator(@NotNull ConfigurationSection config, @NotNull BlockedWords blockedWords) {
+    this.minLength = config.getInt("min-length", 3);
+    this.maxLength = config.getInt("max-length", 20);
+
+    String characters = config.getBoolean("require-alphanumeric", false) ? ALPHANUMERIC
+        : config.getString("allowed-characters", "");
+    this.characterReason = ALPHANUMERIC.equals(characters) ? Reason.NON_ALPHANUMERIC
+        : Reason.INVALID_CHARACTERS;
+    Pattern pattern = null;
+    if (characters != null && !characters.isEmpty()) {
+      try {
+        pattern = Pattern.compile("[" + characters + "]");
+      } catch (PatternSyntaxException e) {
+        Nicks.error("Invalid allowed-characters " + characters + ", allowing any character.");
+      }
+    }
+    this.allowedPattern = pattern;
+    this.allowed = pattern == null ? null : parseSimple(characters);
+
+    this.blockedPatterns = new ArrayList<>();
+    for (String regex : config.getStringList("blocked-patterns")) {
+      try {
+        blockedPatterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE
+            | Pattern.UNICODE_CASE));
+      } catch (PatternSyntaxException e) {
+        Nicks.error("Invalid blocked pattern " + regex + ", ignoring it.");
+      }
+    }
+
+    this.reserved = new HashSet<>();
+    for (String nickname : config.getStringList("reserved-nicknames")) {
+      reserved.add(nickname.toLowerCase(Locale.ROOT));
+    }
+
+    this.impersonation = config.getString("impersonation-check", "warn").toLowerCase(Locale.ROOT);
+    this.uniqueNicks = config.getBoolean("unique-nicknames", false);
+
+    this.rules = new ArrayList<>();
+    rules.add(this::checkCharacters);
+    rules.add(this::checkPatterns);
+    rules.add(this::checkReserved);
+    rules.add(blockedWords);
+    rules.add((owner, plain, folded) -> Nicks.core().getUniqueNicks().check(owner, plain, folded));
+    if (impersonation.equals("deny")) {
+      rules.add(this::checkImpersonation);
+    }
+  }
+
+  /**
+   * Check whether a nickname may be set.
+   *
+   * @param owner The unique id of the player who would get the nickname, null if unknown.
+   * @param nick  The nickname.
+   * @return Why the nickname isn't allowed, or null if it's allowed.
+   */
+  public @Nullable NickFailure validate(@Nullable UUID owner, @NotNull Component nick) {
+    return validate(owner, PlainTextComponentSerializer.plainText().serialize(nick));
+  }
+
+  /**
+   * Check whether a plain text nickname may be set.
+   *
+   * @param owner The unique id of the player who would get the nickname, null if unknown.
+   * @param plain The nickname without formatting.
+   * @return Why the nickname isn't allowed, or null if it's allowed.
+   */
+  public @Nullable NickFailure validate(@Nullable UUID owner, @NotNull String plain) {
+    String folded = plain.toLowerCase(Locale.ROOT);
+    for (NickRule rule : rules) {
+      NickFailure failure = rule.check(owner, plain, folded);
+      if (failure != null) {
+        return failure;
+      }
+    }
+    for (NickRule rule : Nicks.api().getNickRules()) {
+      NickFailure failure = rule.check(owner, plain, folded);
+      if (failure != null) {
+        return failure;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check the length and the allowed characters in a single pass.
+   */
+  private @Nullable NickFailure checkCharacters(@Nullable UUID owner, @NotNull String plain,
+                                                @NotNull String folded) {
+    Set<String> invalid = null;
+    for (int i = 0; i < plain.length(); ) {
+      int codePoint = plain.codePointAt(i);
+      if (allowedPattern != null && !isAllowed(codePoint)) {
+        if (invalid == null) {
+          invalid = new LinkedHashSet<>();
+        }
+        invalid.add(new String(Character.toChars(codePoint)));
+      }
+      i += Character.charCount(codePoint);
+    }
+    if (invalid != null) {
+      return new NickFailure(characterReason, String.join("", invalid));
+    }
+    int length = plain.codePointCount(0, plain.length());
+    if (length < minLength) {
+      return new NickFailure(Reason.TOO_SHORT, String.valueOf(minLength));
+    }
+    if (length > maxLength) {
+      return new NickFailure(Reason.TOO_LONG, String.valueOf(maxLength));
+    }
+    return null;
+  }
+
+  private @Nullable NickFailure checkPatterns(@Nullable UUID owner, @NotNull String plain,
+                                              @NotNull String folded) {
+    for (Pattern pattern : blockedPatterns) {
+      if (pattern.matcher(plain).find()) {
+        return new NickFailure(Reason.BLOCKED_PATTERN, pattern.pattern());
+      }
+    }
+    return null;
+  }
+
+  private @Nullable NickFailure checkReserved(@Nullable UUID owner, @NotNull String plain,
+                                              @NotNull String folded) {
+    return reserved.contains(folded) ? new NickFailure(Reason.RESERVED, plain) : null;
+  }
+
+  /**
+   * Tell the console if a nickname that was just set looks like someone else's name or
+   * nickname. Only does anything when <code>impersonation-check</code> is warn.
+   *
+   * @param owner The unique id of the player who got the nickname.
+   * @param nick  The nickname.
+   */
+  public void warnImpersonation(@NotNull UUID owner, @NotNull Component nick) {
+    if (!impersonation.equals("warn")) {
+      return;
+    }
+    String plain = PlainTextComponentSerializer.plainText().serialize(nick);
+    String conflict = Nicks.core().getImpersonationIndex().findConflict(owner, plain,
+        !uniqueNicks);
+    if (conflict != null) {
+      Nicks.log("Nickname " + plain + " for user " + owner + " looks like " + conflict + ".");
+    }
+  }
+
+  /**
+   * Check whether the nickname looks like someone else's name or nickname. Unless nicknames
+   * have to be unique, using exactly the same nickname as someone else is fine.
+   */
+  private @Nullable NickFailure checkImpersonation(@Nullable UUID owner, @NotNull String plain,
+                                                   @NotNull String folded) {
+    String conflict = Nicks.core().getImpersonationIndex().findConflict(owner, plain,
+        !uniqueNicks);
+    return conflict == null ? null : new NickFailure(Reason.IMPERSONATION, conflict);
+  }
+
+  private boolean isAllowed(int codePoint) {
+    if (allowed != null) {
+      return allowed.get(codePoint);
+    }
+    return allowedPattern.matcher(new String(Character.toChars(codePoint))).matches();
+  }
+
+  /**
+   * Read a character class made of only single characters and ranges, like "a-zA-Z0-9_ ",
+   * into a set so checking a character is a single lookup. Anything else, such as escapes,
+   * negation or nested classes, is left to the regex.
+   *
+   * @return The allowed characters, or null if the class isn't that simple.
+   */
+  private static @Nullable BitSet parseSimple(String characterClass) {
+    int[] codePoints = characterClass.codePoints().toArray();
+    BitSet bits = new BitSet();
+    for (int i = 0; i < codePoints.length; i++) {
+      int start = codePoints[i];
+      if (isSpecial(start) || (start == '^' && i == 0)) {
+        return null;
+      }
+      if (i + 2 < codePoints.length && codePoints[i + 1] == '-') {
+        int end = codePoints[i + 2];
+        if (isSpecial(end) || end < start) {
+          return null;
+        }
+        bits.set(start, end + 1);
+        i += 2;
+      } else {
+        bits.set(start);
+      }
+    }
+    return bits;
+  }
+
+  private static boolean isSpecial(int codePoint) {
+    return codePoint == '\\' || codePoint == '[' || codePoint == ']' || codePoint == '&';
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.validation;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Reduces names to a skeleton shared by names that look alike, in the spirit of the Unicode
+ * confusables skeleton. Case is folded, accents and separators are dropped, Cyrillic and Greek
+ * letters that look like Latin ones are replaced by them, look-alike digits and symbols become
+ * the letter they resemble, and <code>rn</code> and <code>vv</code> become <code>m</code> and
+ * <code>w</code>.</p>
+ * <p>So <code>N&#1086;tch</code> (with a Cyrillic o), <code>N0tch</code> and <code>notch</code>
+ * share a skeleton, as do <code>Adm1n</code>, <code>AdmIn</code> and <code>admin</code>.</p>
+ */
+public final class Skeleton {
+
+  private static final Map<Character, Character> CONFUSABLES = new HashMap<>();
+
+  static {
+    // Cyrillic
+    map("авеорсухкмнтіјѕԁӏԛԝьпг", "abeopcyxkmhtljsdlqwbnr");
+    // Greek
+    map("αβεικνορτυχγωημζ", "abelkvoptuxywnuz");
+    // Digits, symbols and letters that are hard to tell apart
+    map("01i|!34578@$", "olllleastbas");
+  }
+
+  private Skeleton() {
+  }
+
+  /**
+   * Get the skeleton of a name.
+   *
+   * @param name The name.
+   * @return Its skeleton, equal for names that look alike.
+   */
+  public static @NotNull String of(@NotNull String name) {
+    String decomposed = Normalizer.normalize(name, Normalizer.Form.NFKD);
+    StringBuilder skeleton = new StringBuilder(decomposed.length());
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = Character.toLowerCase(decomposed.charAt(i));
+      Character mapped = CONFUSABLES.get(c);
+      if (mapped != null) {
+        c = mapped;
+      }
+      if (!Character.isLetterOrDigit(c)) {
+        continue;
+      }
+      int last = skeleton.length() - 1;
+      if (last >= 0 && skeleton.charAt(last) == 'r' && c == 'n') {
+        skeleton.setCharAt(last, 'm');
+      } else if (last >= 0 && skeleton.charAt(last) == 'v' && c == 'v') {
+        skeleton.setCharAt(last, 'w');
+      } else {
+        skeleton.append(c);
+      }
+    }
+    return skeleton.toString();
+  }
+
+  private static void map(String from, String to) {
+    for (int i = 0; i < from.length(); i++) {
+      CONFUSABLES.put(from.charAt(i), to.charAt(i));
+    }
+  }
+}
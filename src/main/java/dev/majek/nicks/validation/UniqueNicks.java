@@ -0,0 +1,181 @@
+/*
+ * This file is part of PaperNicks, licensed under the MIT License.
+ *
+ * Copyright (c) 2021 Majekdor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.majek.nicks.validation;
+
+import dev.majek.nicks.Nicks;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Keeps nicknames unique when <code>unique-nicknames</code> is enabled.</p>
+ * <p>Nicknames are compared by their plain text ignoring case, using the same index as
+ * {@link Nicks#getUniqueIdFromNick(String)}. Setting a nickname is a two step reserve and
+ * commit: {@link #reserve(UUID, Component)} atomically claims the nickname, and the claim is
+ * released once the nickname is in the index. Two players setting the same nickname at the same
+ * time can't both succeed. {@link Nicks#setNick(org.bukkit.entity.Player, Component)} reserves
+ * as well, so other plugins can't bypass this. Usernames the server has seen can also be
+ * blocked. With lazy loading the index only has loaded players, so the plain text of every
+ * stored nickname is indexed here as well.</p>
+ */
+public class UniqueNicks implements NickRule {
+
+  private final Map<String, UUID>         reservations;
+  private final Map<String, UUID>         realNames;
+  private final Map<String, Set<UUID>>    stored;
+  private final Map<UUID, String>         storedKeys;
+  private volatile boolean                indexingStored;
+
+  public UniqueNicks() {
+    this.reservations = new ConcurrentHashMap<>();
+    this.realNames = new ConcurrentHashMap<>();
+    this.stored = new ConcurrentHashMap<>();
+    this.storedKeys = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Index every stored nickname, including those of players who aren't loaded. Used with lazy
+   * loading, from then on {@link #updateStored(UUID, Component)} keeps the index up to date.
+   *
+   * @param nicks Every stored nickname keyed by unique id.
+   */
+  public void indexStored(@NotNull Map<UUID, Component> nicks) {
+    indexingStored = true;
+    nicks.forEach(this::updateStored);
+  }
+
+  /**
+   * Update the stored nickname of a player. Does nothing unless stored nicknames are indexed.
+   *
+   * @param uuid The player's unique id.
+   * @param nick The stored nickname, null if it was removed.
+   */
+  public synchronized void updateStored(@NotNull UUID uuid, @Nullable Component nick) {
+    if (!indexingStored) {
+      return;
+    }
+    String previous = nick == null ? storedKeys.remove(uuid) : storedKeys.put(uuid, key(nick));
+    if (previous != null) {
+      stored.computeIfPresent(previous, (key, owners) -> {
+        owners.remove(uuid);
+        return owners.isEmpty() ? null : owners;
+      });
+    }
+    if (nick != null) {
+      stored.computeIfAbsent(key(nick), key -> ConcurrentHashMap.newKeySet()).add(uuid);
+    }
+  }
+
+  /**
+   * Remember a player's real name.
+   *
+   * @param uuid The player's unique id.
+   * @param name The player's username.
+   */
+  public void addName(@NotNull UUID uuid, @NotNull String name) {
+    realNames.put(name.toLowerCase(Locale.ROOT), uuid);
+  }
+
+  @Override
+  public @Nullable NickFailure check(@Nullable UUID owner, @NotNull String plain,
+                                     @NotNull String folded) {
+    if (!Nicks.config().UNIQUE_NICKNAMES) {
+      return null;
+    }
+    UUID reserved = reservations.get(folded);
+    if (findHolder(owner, folded) != null || (reserved != null && !reserved.equals(owner))) {
+      return new NickFailure(NickFailure.Reason.TAKEN, plain);
+    }
+    return null;
+  }
+
+  /**
+   * Claim a nickname for a player before setting it. Always succeeds if nicknames don't have
+   * to be unique.
+   *
+   * @param owner The player who will get the nickname.
+   * @param nick  The nickname.
+   * @return False if someone else has or is claiming the nickname.
+   */
+  public boolean reserve(@NotNull UUID owner, @NotNull Component nick) {
+    if (!Nicks.config().UNIQUE_NICKNAMES) {
+      return true;
+    }
+    boolean[] claimed = {false};
+    reservations.compute(key(nick), (key, holder) -> {
+      if ((holder == null || holder.equals(owner)) && findHolder(owner, key) == null) {
+        claimed[0] = true;
+        return owner;
+      }
+      return holder;
+    });
+    return claimed[0];
+  }
+
+  /**
+   * Drop a player's claim on a nickname. Called once the nickname is in the index, which keeps
+   * it taken from then on.
+   *
+   * @param owner The player who claimed the nickname.
+   * @param nick  The nickname.
+   */
+  public void release(@NotNull UUID owner, @NotNull Component nick) {
+    reservations.remove(key(nick), owner);
+  }
+
+  /**
+   * Find someone other than the owner who has a nickname or, if enabled, that username.
+   */
+  private @Nullable UUID findHolder(@Nullable UUID owner, String folded) {
+    for (UUID holder : Nicks.core().getNickOwners(folded)) {
+      if (!holder.equals(owner)) {
+        return holder;
+      }
+    }
+    for (UUID holder : stored.getOrDefault(folded, Collections.emptySet())) {
+      if (!holder.equals(owner)) {
+        return holder;
+      }
+    }
+    if (Nicks.config().BLOCK_REAL_NAMES) {
+      UUID holder = realNames.get(folded);
+      if (holder != null && !holder.equals(owner)) {
+        return holder;
+      }
+    }
+    return null;
+  }
+
+  private String key(Component nick) {
+    return PlainTextComponentSerializer.plainText().serialize(nick).toLowerCase(Locale.ROOT);
+  }
+}